@@ -0,0 +1,97 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import gov.aps.jca.dbr.TimeStamp;
+import yascaif.PValue;
+import yascaif.PValueCodec;
+
+/* Compare PValueCodec with Java serialization, for a scalar and a waveform.
+ *
+ * PValue itself can't be serialized as the CAJ TimeStamp isn't Serializable,
+ * so Java serialization is measured with the fields it would write:
+ * the value array, severity, and time stamp.
+ *
+ * Usage: benchCodec [waveform length] [seconds per case]
+ */
+public class benchCodec {
+
+	public static void main(String[] args) throws Exception {
+		int wflen = args.length>0 ? Integer.parseInt(args[0]) : 1000000;
+		double period = args.length>1 ? Double.parseDouble(args[1]) : 2.0;
+
+		try {
+			serialize(PValue.of("bench", new double[]{1.0}, 0, new TimeStamp()));
+			System.out.println("PValue is Serializable");
+		} catch(NotSerializableException e) {
+			System.out.println("PValue is not Serializable: "+e.getMessage());
+		}
+
+		double[] wf = new double[wflen];
+		for(int i=0; i<wflen; i++)
+			wf[i] = Math.sin(i*0.001);
+
+		System.out.println("case        method   bytes  encode us  decode us");
+		run("scalar", PValue.of("bench", new double[]{42.0}, 0, new TimeStamp()), period);
+		run("waveform", PValue.of("bench", wf, 0, new TimeStamp()), period);
+	}
+
+	private static void run(String name, PValue V, double period) throws Exception
+	{
+		ByteBuffer B = ByteBuffer.allocateDirect(PValueCodec.encodedSize(V));
+		long n = 0, start = System.nanoTime(), end = start+(long)(period*1e9);
+		while((n&0xf)!=0 || System.nanoTime()<end) {
+			B.clear();
+			PValueCodec.encode(B, V);
+			n++;
+		}
+		double enc = (System.nanoTime()-start)/1e3/n;
+
+		// use the decoded values, so the decode isn't optimized away
+		double sum = 0.0;
+		n = 0; start = System.nanoTime(); end = start+(long)(period*1e9);
+		while((n&0xf)!=0 || System.nanoTime()<end) {
+			B.rewind();
+			sum += PValueCodec.decode(B, "bench").getDouble(0);
+			n++;
+		}
+		double dec = (System.nanoTime()-start)/1e3/n;
+		if(sum!=n*V.getDouble(0))
+			throw new IllegalStateException("decoded "+sum/n+" expected "+V.getDouble(0));
+		System.out.printf("%-10s %-7s %7d %10.3f %10.3f%n", name, "codec", B.capacity(), enc, dec);
+
+		Object[] fields = new Object[]{V.getValue(), V.getSevr(), V.getTimeInt()};
+		byte[] ser = null;
+		n = 0; start = System.nanoTime(); end = start+(long)(period*1e9);
+		while((n&0xf)!=0 || System.nanoTime()<end) {
+			ser = serialize(fields);
+			n++;
+		}
+		enc = (System.nanoTime()-start)/1e3/n;
+
+		n = 0; start = System.nanoTime(); end = start+(long)(period*1e9);
+		while((n&0xf)!=0 || System.nanoTime()<end) {
+			try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(ser))) {
+				in.readObject();
+			}
+			n++;
+		}
+		dec = (System.nanoTime()-start)/1e3/n;
+		System.out.printf("%-10s %-7s %7d %10.3f %10.3f%n", name, "java", ser.length, enc, dec);
+	}
+
+	private static byte[] serialize(Object o) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(o);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,102 @@
+package test;
+
+import java.lang.reflect.Array;
+import java.util.HashMap;
+import java.util.Map;
+
+import yascaif.CA;
+
+/* Compare CA.coerceWritable() against the previous reflection based implementation.
+ *
+ * Usage: benchCoerce [#elements]
+ */
+public class benchCoerce {
+
+	static final Map<Class<?>, Class<?>> unbox = new HashMap<>();
+	static {
+		unbox.put(Double.class,  double.class);
+		unbox.put(Float.class,   float.class);
+		unbox.put(Integer.class, int.class);
+		unbox.put(Short.class,   short.class);
+	}
+
+	// previous implementation
+	static Object reflectCoerce(Object val) {
+		int count;
+		Class<?> klass = val.getClass();
+
+		if(klass.isArray()) {
+			count = Array.getLength(val);
+		} else {
+			count = 1;
+			Object aval = Array.newInstance(klass, 1);
+			Array.set(aval, 0, val);
+			val = aval;
+			klass = val.getClass();
+		}
+
+		Class<?> eklass = klass.getComponentType();
+
+		if(eklass!=String.class && !eklass.isPrimitive()) {
+			Class<?> utype = unbox.get(eklass);
+			if(utype==null)
+				throw new RuntimeException("Unable to coerce "+klass.getName()+" into CA writeable");
+
+			Object aval = Array.newInstance(utype, count);
+			for(int i=0; i<count; i++) {
+				Array.set(aval, i, Array.get(val, i));
+			}
+			val = aval;
+		}
+
+		return val;
+	}
+
+	interface Coerce { Object run(Object v); }
+
+	static volatile Object sink;
+
+	// returns ns per call
+	static double time(Coerce c, Object v, long minns) {
+		// warmup
+		long end = System.nanoTime()+minns;
+		while(System.nanoTime()<end)
+			sink = c.run(v);
+
+		long n = 0, start = System.nanoTime();
+		end = start+minns;
+		long now;
+		do {
+			for(int i=0; i<8; i++)
+				sink = c.run(v);
+			n += 8;
+			now = System.nanoTime();
+		} while(now<end);
+		return (now-start)/(double)n;
+	}
+
+	static void compare(String name, Object v) {
+		long minns = 1000000000l;
+		double told = time(benchCoerce::reflectCoerce, v, minns);
+		double tnew = time(CA::coerceWritable, v, minns);
+		System.out.printf("%-20s %14.1f %14.1f %8.1fx%n", name, told, tnew, told/tnew);
+	}
+
+	public static void main(String[] args) {
+		int nelem = args.length>0 ? Integer.parseInt(args[0]) : 1000000;
+
+		Double[] boxed = new Double[nelem];
+		Integer[] iboxed = new Integer[nelem];
+		for(int i=0; i<nelem; i++) {
+			boxed[i] = (double)i;
+			iboxed[i] = i;
+		}
+
+		System.out.printf("%-20s %14s %14s %9s%n", "input", "reflect ns/op", "table ns/op", "speedup");
+		compare("Double", 4.2);
+		compare("double[1]", new double[]{4.2});
+		compare("String", "hello");
+		compare("Double["+nelem+"]", boxed);
+		compare("Integer["+nelem+"]", iboxed);
+	}
+}
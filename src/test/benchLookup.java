@@ -0,0 +1,61 @@
+package test;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import yascaif.CA;
+
+/* Measure channel lookup throughput as the number of threads increases.
+ *
+ * Needs no server.  Channels are created, but never connect.
+ *
+ * Usage: benchLookup [#PVs] [seconds per step]
+ */
+public class benchLookup {
+
+	public static void main(String[] args) throws Exception {
+		int npvs = args.length>0 ? Integer.parseInt(args[0]) : 1000;
+		double period = args.length>1 ? Double.parseDouble(args[1]) : 2.0;
+		int maxthreads = Runtime.getRuntime().availableProcessors()*2;
+
+		CA.setVerbose(false);
+		try(CA ca = new CA(new CA.Config().addrList("127.0.0.1").autoAddrList(false))) {
+			final String[] names = new String[npvs];
+			for(int i=0; i<npvs; i++)
+				names[i] = "bench:lookup:"+i;
+
+			ca.connect(names); // populate
+
+			System.out.printf("%d PVs, %d cores%n", npvs, Runtime.getRuntime().availableProcessors());
+			System.out.println("threads   lookups/s");
+
+			for(int nthreads=1; nthreads<=maxthreads; nthreads*=2) {
+				final LongAdder count = new LongAdder();
+				final long end = System.nanoTime() + (long)(period*1e9);
+				Thread[] workers = new Thread[nthreads];
+
+				for(int t=0; t<nthreads; t++) {
+					final int offset = t*7919;
+					workers[t] = new Thread() {
+						@Override
+						public void run() {
+							long n = 0;
+							int i = offset;
+							while((n&0xff)!=0 || System.nanoTime()<end) {
+								ca.connect(names[i++%names.length]);
+								n++;
+							}
+							count.add(n);
+						}
+					};
+				}
+				long start = System.nanoTime();
+				for(Thread T : workers) T.start();
+				for(Thread T : workers) T.join();
+				double elapsed = (System.nanoTime()-start)/1e9;
+
+				System.out.printf("%7d %11.0f%n", nthreads, count.sum()/elapsed);
+			}
+			System.out.printf("cache hit rate %f%n", ca.getCacheHitRate());
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import gov.aps.jca.JCALibrary;
+import gov.aps.jca.cas.ServerContext;
+import gov.aps.jca.dbr.DBRType;
+import yascaif.CA;
+import yascaif.Monitor;
+import yascaif.PValue;
+
+/* Compare promotion to the old generation with and without Monitor.setPooling().
+ *
+ * Starts an in-process CA server with one waveform PV, which is written
+ * at a fixed rate.  A consumer at half that rate keeps the Monitor queue
+ * full, so queued values survive young collections.  Bytes promoted by
+ * young collections after a warm up period are summed from GC
+ * notifications.  This includes promotion by the server and the writer,
+ * unless these are run by a separate process with the "server" mode,
+ * and the consumer with "client".
+ * With pooling, the number of pool allocations should stop increasing
+ * once the pool holds the queue capacity.
+ *
+ * Keep waveforms well below half of a G1 region, which would be
+ * allocated directly in the old generation.  A fixed young generation
+ * (eg. -Xms1g -Xmx1g -Xmn96m) gives repeatable numbers.
+ *
+ *   java -cp ... test.benchPool 16384 0 0 200 server &
+ *   java -XX:+UseG1GC -Xms1g -Xmx1g -Xmn96m -cp ... test.benchPool 16384 8 256 200 client
+ *
+ * Usage: benchPool [#elements] [seconds per case] [queue capacity] [updates/s] [all|server|client]
+ */
+public class benchPool {
+	static final String PV = "bench:pool:wf";
+	static final AtomicLong promoted = new AtomicLong(), youngGCs = new AtomicLong();
+
+	public static void main(String[] args) throws Exception {
+		int nelem = args.length>0 ? Integer.parseInt(args[0]) : 16384;
+		double period = args.length>1 ? Double.parseDouble(args[1]) : 5.0;
+		int capacity = args.length>2 ? Integer.parseInt(args[2]) : 256;
+		double rate = args.length>3 ? Double.parseDouble(args[3]) : 200.0;
+		String mode = args.length>4 ? args[4] : "all";
+
+		watchGC();
+
+		ServerContext srv = null;
+		if(!mode.equals("client"))
+			srv = startServer(nelem);
+
+		CA.setVerbose(false);
+		CA.Config conf = new CA.Config().addrList("127.0.0.1:15099").autoAddrList(false).maxArrayBytes(8*nelem+1024);
+		try(CA ca = new CA(conf)) {
+			if(mode.equals("server")) {
+				System.out.printf("Writing %s at %.0f updates/s%n", PV, rate);
+				writer(ca, nelem, rate, Long.MAX_VALUE).run();
+			} else {
+				System.out.printf("%d elements, queue capacity %d%n", nelem, capacity);
+				System.out.printf("%.0f updates/s, consumer at half rate%n", rate);
+				System.out.println("pooling  taken  pool allocs each second       young GCs  promoted MB");
+				for(int pooling : new int[]{0, capacity+4, 0, capacity+4})
+					run(ca, nelem, period, capacity, pooling, rate, !mode.equals("client"));
+			}
+		}
+		if(srv!=null)
+			srv.destroy();
+		System.exit(0);
+	}
+
+	static ServerContext startServer(int nelem) throws Exception
+	{
+		System.setProperty("com.cosylab.epics.caj.cas.CAJServerContext.server_port", "15099");
+		System.setProperty("com.cosylab.epics.caj.cas.CAJServerContext.beacon_addr_list", "127.0.0.1");
+		System.setProperty("com.cosylab.epics.caj.cas.CAJServerContext.auto_beacon_addr_list", "false");
+		System.setProperty("com.cosylab.epics.caj.cas.CAJServerContext.max_array_bytes", Integer.toString(8*nelem+1024));
+		DefaultServerImpl impl = new DefaultServerImpl();
+		impl.createMemoryProcessVariable(PV, DBRType.DOUBLE, new double[nelem]);
+		final ServerContext srv = JCALibrary.getInstance().createServerContext(JCALibrary.CHANNEL_ACCESS_SERVER_JAVA, impl);
+		Thread server = new Thread() {
+			@Override
+			public void run() {
+				try {
+					srv.run(0);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		server.setDaemon(true);
+		server.start();
+		return srv;
+	}
+
+	static Thread writer(final CA ca, final int nelem, double rate, final long end)
+	{
+		final long interval = (long)(1e9/rate);
+		return new Thread() {
+			@Override
+			public void run() {
+				double[] val = new double[nelem];
+				for(long next = System.nanoTime(); next<end; next += interval) {
+					val[0]++;
+					ca.write(PV, val, true);
+					LockSupport.parkNanos(next+interval-System.nanoTime());
+				}
+			}
+		};
+	}
+
+	static void run(CA ca, int nelem, double period, int capacity, int pooling, double rate, boolean write) throws Exception
+	{
+		final long interval = (long)(1e9/rate);
+		final long warmup = System.nanoTime()+2*capacity*interval+1000000000L,
+				end = warmup+(long)(period*1e9);
+		Thread writer = writer(ca, nelem, rate, end);
+
+		try(Monitor M = ca.monitor(PV)) {
+			M.setCapacity(capacity);
+			M.setPooling(pooling);
+			M.waitFor(5.0).release();
+
+			System.gc();
+			long gc0 = 0, prom0 = 0, n = 0;
+			boolean warm = false;
+			StringBuilder allocs = new StringBuilder();
+			long nextReport = System.nanoTime()+1000000000L;
+
+			if(write)
+				writer.start();
+			for(long now; (now=System.nanoTime())<end; ) {
+				if(!warm && now>=warmup) {
+					warm = true;
+					gc0 = youngGCs.get();
+					prom0 = promoted.get();
+				}
+				PValue V = M.waitFor(1.0);
+				if(V==null)
+					continue;
+				V.release();
+				n++;
+				LockSupport.parkNanos(2*interval); // slow consumer
+				if(now>nextReport) {
+					allocs.append(' ').append(M.getPoolAllocated());
+					nextReport += 1000000000L;
+				}
+			}
+			if(write)
+				writer.join();
+
+			System.out.printf("%7d %6d %-30s %9d %12.1f%n", pooling, n, allocs,
+					youngGCs.get()-gc0, (promoted.get()-prom0)/1048576.0);
+		}
+	}
+
+	// sum the growth of old generation pools during young collections
+	static void watchGC()
+	{
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter)gc).addNotificationListener((note, hb) -> {
+				if(!note.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+					return;
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData)note.getUserData());
+				if(!info.getGcAction().contains("minor"))
+					return;
+				youngGCs.incrementAndGet();
+				Map<String, MemoryUsage> before = info.getGcInfo().getMemoryUsageBeforeGc(),
+						after = info.getGcInfo().getMemoryUsageAfterGc();
+				for(Map.Entry<String, MemoryUsage> e : after.entrySet()) {
+					String name = e.getKey();
+					if(!name.contains("Old") && !name.contains("Tenured"))
+						continue;
+					long grew = e.getValue().getUsed()-before.get(name).getUsed();
+					if(grew>0)
+						promoted.addAndGet(grew);
+				}
+			}, null, null);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package test;
+
+import java.io.File;
+
+import gov.aps.jca.dbr.TimeStamp;
+import yascaif.PValue;
+import yascaif.RecordReader;
+import yascaif.Recorder;
+
+/* Measure Recorder throughput for scalar updates, then read them back.
+ *
+ * Needs no server.  Updates are generated by one thread,
+ * which retries when the queue is full.
+ *
+ * Usage: benchRecord <directory> [#updates] [#PVs]
+ */
+public class benchRecord {
+
+	public static void main(String[] args) throws Exception {
+		File dir = new File(args[0]);
+		int nupdates = args.length>1 ? Integer.parseInt(args[1]) : 10000000;
+		int npvs = args.length>2 ? Integer.parseInt(args[2]) : 100;
+
+		long start = System.nanoTime(), retries = 0;
+		Recorder rec = new Recorder(dir);
+		try {
+			int first = 0;
+			for(int i=0; i<npvs; i++)
+				first = rec.addPV("bench:record:"+i) - i;
+
+			TimeStamp now = new TimeStamp();
+			for(int i=0; i<nupdates; i++) {
+				PValue v = PValue.of(rec, new double[]{i}, 0, now);
+				while(!rec.record(first+i%npvs, v)) {
+					retries++;
+					Thread.yield();
+				}
+			}
+		} finally {
+			rec.close();
+		}
+		double elapsed = (System.nanoTime()-start)/1e9;
+		System.out.printf("wrote %d updates in %d segments, %.0f updates/s, %d retries%n",
+				rec.getWritten(), rec.getSegments(), rec.getWritten()/elapsed, retries);
+
+		start = System.nanoTime();
+		long n = 0;
+		double sum = 0.0;
+		try(RecordReader rd = new RecordReader(dir)) {
+			RecordReader.Record ev;
+			while((ev=rd.next())!=null) {
+				sum += ev.getValue().getDouble(0);
+				n++;
+			}
+		}
+		elapsed = (System.nanoTime()-start)/1e9;
+		System.out.printf("read %d updates, %.0f updates/s (sum %.0f)%n", n, n/elapsed, sum);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+
+/** PValue holding a byte[], eg. from DBR_CHAR */
+public class BytePValue extends PValue {
+	private static final long serialVersionUID = 213765686075115810L;
+
+	private final byte[] data;
+
+	BytePValue(Object src, byte[] val, int cnt, int sevr, TimeStamp ts) {
+		super(src, val, cnt, sevr, ts);
+		data = val;
+	}
+
+	/** Element 'i' */
+	public byte getByteValue(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	/** Copy of the valid elements */
+	public byte[] getByteValues()
+	{
+		return Arrays.copyOf(data, count);
+	}
+
+	@Override
+	public double getDouble(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	@Override
+	public double[] getDoubles()
+	{
+		double[] ret = new double[count];
+		for(int i=0; i<count; i++)
+			ret[i] = data[i];
+		return ret;
+	}
+
+	@Override
+	public String getString(int i)
+	{
+		checkIndex(i);
+		return String.valueOf(data[i]);
+	}
+
+	@Override
+	protected void appendElement(StringBuilder b, int i)
+	{
+		b.append(data[i]);
+	}
+}
@@ -15,6 +15,7 @@ import gov.aps.jca.dbr.DBR;
 import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.dbr.STS;
 import gov.aps.jca.dbr.Severity;
+import gov.aps.jca.dbr.TimeStamp;
 import gov.aps.jca.event.ConnectionEvent;
 import gov.aps.jca.event.ConnectionListener;
 import gov.aps.jca.event.GetEvent;
@@ -25,10 +26,30 @@ import gov.aps.jca.event.PutListener;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -50,17 +71,41 @@ public class CA implements AutoCloseable {
 		private String _addr_list;
 		private String _name_servers;
 		private long _max_bytes = 33554532;
+		private int _max_channels = 0;
+		private double _idle_timeout = 0.0;
+		private Executor _dispatcher;
+		private double _monitor_cache = -1.0;
 		public Config() {}
 		public Config useEnv(boolean v) { _useenv = v; return this; }
 		public Config autoAddrList(boolean v) { _auto_addr_list = v; return this; }
 		public Config addrList(String v) { _addr_list = v; return this; }
 		public Config nameServers(String v) { _name_servers = v; return this; }
 		public Config maxArrayBytes(long v) { _max_bytes = v; return this; }
+		/** Max. number of cached channels.  When exceeded, the least recently used
+		 *  channels not in use by an operation or Monitor are disconnected.
+		 *  0 (the default) for no limit.
+		 */
+		public Config maxChannels(int v) { _max_channels = v; return this; }
+		/** Disconnect channels which have not been used for this many seconds,
+		 *  unless in use by a Monitor.  0 (the default) to keep channels until close().
+		 */
+		public Config idleTimeout(double v) { _idle_timeout = v; return this; }
+		/** Default executor for Monitor listener callbacks.
+		 *  null (the default) calls listeners from the CAJ dispatcher thread.
+		 *  @see Monitor#setDispatcher(Executor)
+		 */
+		public Config dispatcher(Executor v) { _dispatcher = v; return this; }
+		/** Serve reads from Monitor subscriptions.  @see CA#setMonitorCache(double) */
+		public Config monitorCache(double maxAge) { _monitor_cache = maxAge; return this; }
 	}
 	private static Logger L = Logger.getLogger(CA.class.getName());
 
 	private Context ctxt;
-	private long timeout = 2000;
+	private volatile long timeout = 2000;
+
+	// Number of flushIO() calls
+	private final AtomicLong nflush = new AtomicLong();
+	private volatile int lastBatchFlushes = 0;
 
 	private static final String cajname = "com.cosylab.epics.caj.CAJContext";
 
@@ -71,39 +116,227 @@ public class CA implements AutoCloseable {
 		rep.setUseParentHandlers(false);
 	}
 
-	private final Map<String, CAJChannel> channels = new HashMap<>();
+	private final ConcurrentHashMap<String, ChannelEntry> channels = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Subscription.Key, Subscription> subscriptions = new ConcurrentHashMap<>();
+	private int maxChannels;
+	private long idleTimeout;
+	private ScheduledFuture<?> idleSweep;
+	// default for new Monitors
+	final Executor dispatcher;
+	// only one thread trims to maxChannels at a time
+	private final AtomicBoolean evicting = new AtomicBoolean();
+	// max. age in nanoseconds of values served from subscriptions.  <0 disabled, 0 any age
+	private volatile long monitorCacheAge = -1;
+	private final LongAdder monitorCacheHits = new LongAdder();
+	private final LongAdder cacheHits = new LongAdder(),
+			cacheMisses = new LongAdder(),
+			cacheEvictions = new LongAdder();
 
 	// Create or re-use Channel
 	// returned CAJChannel may already be connected
-	private CAJChannel lookup(String pvname)
+	// Caller must release() the returned entry
+	ChannelEntry acquire(final String pvname)
 	{
-		CAJChannel chan;
-		synchronized (this) {
-			chan = channels.get(pvname);
+		while(true) {
+			boolean made = false;
+			ChannelEntry ent = channels.get(pvname);
+			if(ent==null) {
+				final boolean[] mk = {false};
+				// create exactly one channel per name
+				ent = channels.computeIfAbsent(pvname, name -> {
+					try {
+						L.info("Create connection to "+name);
+						mk[0] = true;
+						return new ChannelEntry(name, (CAJChannel) ctxt.createChannel(name));
+					} catch (Exception e) {
+						throw new RuntimeException("Failed to create channel", e);
+					}
+				});
+				made = mk[0];
+			}
+			if(ent.tryAcquire()) {
+				if(made) {
+					cacheMisses.increment();
+					if(maxChannels>0 && channels.size()>maxChannels)
+						evictLRU();
+				} else {
+					cacheHits.increment();
+				}
+				return ent;
+			}
+			// lost a race with eviction, which will remove this entry
+			channels.remove(pvname, ent);
 		}
-		if(chan==null) {
+	}
+
+	void release(ChannelEntry ent)
+	{
+		ent.release();
+	}
+
+	/* Trim to below maxChannels by removing unpinned entries in least recently used order.
+	 * Removes some extra entries so that the cost of sorting is amortized.
+	 */
+	private void evictLRU()
+	{
+		if(!evicting.compareAndSet(false, true))
+			return;
+		List<ChannelEntry> evicted = new ArrayList<>();
+		try {
+			int target = maxChannels - maxChannels/16;
+			List<ChannelEntry> cands = new ArrayList<>(channels.values());
+			Collections.sort(cands, (a, b) -> Long.compare(a.lastUsed, b.lastUsed));
+			for(ChannelEntry ent : cands) {
+				if(channels.size()<=target)
+					break;
+				if(ent.tryEvict() && channels.remove(ent.name, ent))
+					evicted.add(ent);
+			}
+		} finally {
+			evicting.set(false);
+		}
+		cacheEvictions.add(evicted.size());
+		destroyEvicted(evicted);
+	}
+
+	// Remove entries not used within idleTimeout
+	private void evictIdle()
+	{
+		List<ChannelEntry> evicted = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		for(ChannelEntry ent : channels.values()) {
+			if(now-ent.lastUsed<idleTimeout)
+				continue;
+			if(ent.tryEvict() && channels.remove(ent.name, ent))
+				evicted.add(ent);
+		}
+		cacheEvictions.add(evicted.size());
+		destroyEvicted(evicted);
+	}
+
+	private static void destroyEvicted(List<ChannelEntry> evicted)
+	{
+		for(ChannelEntry ent : evicted) {
+			L.info("Evict channel "+ent.name);
 			try {
-				chan = (CAJChannel) ctxt.createChannel(pvname);
-				L.info("Create connection to "+pvname);
+				ent.chan.destroy();
 			} catch (Exception e) {
-				throw new RuntimeException("Failed to create channel", e);
+				L.log(Level.WARNING, "Error to disconnect evicted PV", e);
 			}
 		}
-		CAJChannel other;
-		synchronized (this) {
-			other = channels.get(pvname);
-			if(other==null)
-				channels.put(pvname, chan);
+	}
+
+	// Periodic idle channel eviction.  Doesn't keep the CA alive.
+	private static class IdleSweep implements Runnable {
+		private final WeakReference<CA> owner;
+		IdleSweep(CA o) { owner = new WeakReference<>(o); }
+		@Override
+		public void run() {
+			CA o = owner.get();
+			if(o!=null)
+				o.evictIdle();
+		}
+	}
+
+	/* Find or create the shared subscription for (name, count, mask).
+	 * A new subscription flushes through 'batch' if not null.
+	 * Caller must unsubscribe() the returned subscription.
+	 */
+	Subscription subscribe(String name, int count, int mask, FlushBatch batch)
+	{
+		final Subscription.Key key = new Subscription.Key(name, count, mask);
+		while(true) {
+			boolean made = false;
+			Subscription sub = subscriptions.get(key);
+			if(sub==null) {
+				final boolean[] mk = {false};
+				sub = subscriptions.computeIfAbsent(key, k -> {
+					ChannelEntry ent = acquire(k.name);
+					mk[0] = true;
+					return new Subscription(k, ent, batch);
+				});
+				made = mk[0];
+			}
+			if(sub.tryAcquire()) {
+				if(made) {
+					try {
+						sub.start();
+					} catch(RuntimeException e) {
+						unsubscribe(sub);
+						throw e;
+					}
+				}
+				return sub;
+			}
+			// lost a race with the last unsubscribe(), which will remove this entry
+			subscriptions.remove(key, sub);
 		}
-		if(other!=null && chan!=other) {
+	}
+
+	void unsubscribe(Subscription sub)
+	{
+		if(sub.release()) {
+			subscriptions.remove(sub.key, sub);
 			try {
-				chan.destroy();
-			} catch (Exception e) {
-				L.log(Level.WARNING, "Destruction of incidental channel fails", e);
+				sub.close();
+			} finally {
+				release(sub.entry);
 			}
-			chan = other;
 		}
-		return chan;
+	}
+
+	/** Serve read(), readM(), and readManyM() from the latest update of an
+	 *  open Monitor of the same PV, when it subscribes to the whole value
+	 *  (element count 0, event mask including VALUE).
+	 *
+	 *  @param maxAge Seconds since the update was received, after which
+	 *         the PV is read from the server.  0 for any age.  <0 to disable (the default).
+	 */
+	public void setMonitorCache(double maxAge)
+	{
+		monitorCacheAge = maxAge<0.0 ? -1 : (long)(maxAge*1e9);
+	}
+
+	public double getMonitorCache()
+	{
+		long age = monitorCacheAge;
+		return age<0 ? -1.0 : age*1e-9;
+	}
+
+	/** Number of reads served from Monitor subscriptions */
+	public long getMonitorCacheHits() { return monitorCacheHits.sum(); }
+
+	// Latest value of a live subscription, or null
+	private DBR monitorCached(String name, DBRType dtype, int count)
+	{
+		long maxAge = monitorCacheAge;
+		if(maxAge<0 || dtype!=null)
+			return null;
+		ChannelEntry ent = channels.get(name);
+		Subscription sub = ent==null ? null : ent.valueSub;
+		DBR dbr = sub==null ? null : sub.cachedDBR(maxAge, count);
+		if(dbr!=null)
+			monitorCacheHits.increment();
+		return dbr;
+	}
+
+	/** Number of CA subscriptions, each shared by one or more Monitors */
+	public int getSubscriptionCount() { return subscriptions.size(); }
+
+	/** Number of cached channels */
+	public int getChannelCount() { return channels.size(); }
+	/** Number of operations which re-used a cached channel */
+	public long getCacheHits() { return cacheHits.sum(); }
+	/** Number of operations which created a new channel */
+	public long getCacheMisses() { return cacheMisses.sum(); }
+	/** Number of channels disconnected by the maxChannels or idleTimeout policies */
+	public long getCacheEvictions() { return cacheEvictions.sum(); }
+
+	/** Fraction of operations which re-used a cached channel */
+	public double getCacheHitRate()
+	{
+		long hits = cacheHits.sum(), total = hits+cacheMisses.sum();
+		return total==0 ? 0.0 : hits/(double)total;
 	}
 
 	private static final Map<CA, Integer> _allinst = new WeakHashMap<>();
@@ -150,6 +383,16 @@ public class CA implements AutoCloseable {
 			throw new RuntimeException("Failed to create JCA/CAJ context", e);
 		}
 
+		dispatcher = c._dispatcher;
+		setMonitorCache(c._monitor_cache);
+		maxChannels = c._max_channels;
+		idleTimeout = (long)(c._idle_timeout*1000);
+		if(idleTimeout>0) {
+			long period = Math.max(idleTimeout/2, 100);
+			idleSweep = timers.scheduleWithFixedDelay(new IdleSweep(this),
+					period, period, TimeUnit.MILLISECONDS);
+		}
+
 		_allinst.put(this, 1);
 	}
 
@@ -185,11 +428,8 @@ public class CA implements AutoCloseable {
 		long newto = (long)(v*1000);
 		if(newto<=0)
 			throw new RuntimeException("Timeout out or range, must be >= 0.0");
-		double ret;
-		synchronized (this) {
-			ret = timeout;
-			timeout = newto;
-		}
+		double ret = timeout;
+		timeout = newto;
 		return ret/1000.0;
 	}
 
@@ -211,6 +451,21 @@ public class CA implements AutoCloseable {
 		ctxt.printInfo(strm);
 	}
 
+	/** Total number of times this context has flushed its send queue */
+	public long getFlushCount()
+	{
+		return nflush.get();
+	}
+
+	/** Number of times the send queue was flushed by the most recent
+	 *  multi-PV operation (eg. readManyM() or writeMany()).
+	 *  Normally 1, plus one for each PV which connected late.
+	 */
+	public int getLastBatchFlushCount()
+	{
+		return lastBatchFlushes;
+	}
+
 	public String confInfo()
 	{
 		try(ByteArrayOutputStream bs = new ByteArrayOutputStream();
@@ -249,6 +504,60 @@ public class CA implements AutoCloseable {
 		return ret;
 	}
 
+	/** Read unsigned 32-bit integers into a caller provided buffer.
+	 *
+	 * Avoids allocating a long[] for each read.  CAJ still allocates
+	 * the int[] it receives.
+	 *
+	 * @return The number of elements stored in 'dest'
+	 * @throws IllegalArgumentException if 'dest' is empty
+	 */
+	public int getUInt(String name, long[] dest)
+	{
+		checkDest(dest.length);
+		DBR dbr = getDBR(name, DBRType.TIME_INT, dest.length);
+		int[] sv = (int[])dbr.getValue();
+		int n = Math.min(sv.length, dest.length);
+		for(int i=0; i<n; i++) {
+			dest[i] = 0xffffffffl & (long)sv[i];
+		}
+		return n;
+	}
+
+	// read value into caller provided buffer
+
+	/** Read into a caller provided buffer
+	 *
+	 * Requests at most dest.length elements, with the server converting
+	 * to the type of 'dest'.  The returned PValue wraps 'dest',
+	 * with getCount() giving the number of valid elements.
+	 * Subsequent reads into the same buffer will overwrite the returned value.
+	 *
+	 * @throws IllegalArgumentException if 'dest' is empty
+	 */
+	public PValue readInto(String name, double[] dest) { return readInto(name, dest, DBRType.TIME_DOUBLE, dest.length); }
+	public PValue readInto(String name, float[] dest)  { return readInto(name, dest, DBRType.TIME_FLOAT, dest.length); }
+	public PValue readInto(String name, int[] dest)    { return readInto(name, dest, DBRType.TIME_INT, dest.length); }
+	public PValue readInto(String name, short[] dest)  { return readInto(name, dest, DBRType.TIME_SHORT, dest.length); }
+	public PValue readInto(String name, byte[] dest)   { return readInto(name, dest, DBRType.TIME_BYTE, dest.length); }
+
+	private PValue readInto(String name, Object dest, DBRType dtype, int len)
+	{
+		checkDest(len);
+		DBR dbr = getDBR(name, dtype, len);
+		Object val = dbr.getValue();
+		int n = Math.min(Array.getLength(val), len);
+		System.arraycopy(val, 0, dest, 0, n);
+		return PValue.of(this, dest, n, PValue.severityOf(dbr), PValue.timeOf(dbr));
+	}
+
+	// a count of 0 would request all elements
+	private static void checkDest(int len)
+	{
+		if(len==0)
+			throw new IllegalArgumentException("Empty destination buffer");
+	}
+
 	// get value and metadata (alarm and timestamp)
 
 	public PValue getDoubleM(String name)            { return readM(name); }
@@ -273,64 +582,203 @@ public class CA implements AutoCloseable {
 
 	public Monitor monitor(String name)
 	{
-		CAJChannel chan = lookup(name);
-		return new Monitor(chan, 0);
+		return monitor(name, 0);
 	}
 
 	public Monitor monitor(String name, int count)
 	{
-		CAJChannel chan = lookup(name);
-		return new Monitor(chan, count);
+		return monitor(name, count, Monitor.DEFAULT_MASK);
 	}
 
-	static final Map<Class<?>, Class<?>> unbox = new HashMap<>();
-	static {
-		unbox.put(Double.class,  double.class);
-		unbox.put(Float.class,   float.class);
-		unbox.put(Integer.class, int.class);
-		unbox.put(Short.class,   short.class);
-		unbox.put(Byte.class,    char.class);
+	/** Subscribe with an event mask.
+	 *  eg. Monitor.LOG for archive deadband updates, or Monitor.ALARM for
+	 *  alarm changes only.
+	 */
+	public Monitor monitor(String name, int count, int mask)
+	{
+		return new Monitor(this, name, count, mask);
 	}
 
-	/* attempt to convert the provided object into an array of
-	 * a type which CA can write (primitive integer,
-	 * primitive floating point, or String).
-	 */
-	public static Object coerceWritable(Object val) {
-		int count;
-		Class<?> klass = val.getClass();
+	public MonitorGroup monitorGroup(String[] names)
+	{
+		return monitorGroup(names, 0, Monitor.DEFAULT_MASK);
+	}
 
-		// ensure val is an array
-		if(klass.isArray()) {
-			count = Array.getLength(val);
-		} else {
-			// package scalar in size 1 array
-			count = 1;
-			Object aval = Array.newInstance(klass, 1);
-			Array.set(aval, 0, val);
-			val = aval;
-			klass = val.getClass();
+	/** Subscribe to several PVs, with updates placed in one shared queue.
+	 *  Subscriptions to already connected channels are sent with a single flush.
+	 */
+	public MonitorGroup monitorGroup(String[] names, int count, int mask)
+	{
+		FlushBatch batch = newBatch();
+		MonitorGroup G = new MonitorGroup(this, names, count, mask, batch);
+		try {
+			batch.send(ctxt);
+		} catch (CAException e) {
+			G.close();
+			throw new RuntimeException("Failed to flush subscriptions", e);
 		}
+		batchDone("Monitor", names.length, batch);
+		return G;
+	}
 
-		Class<?> eklass = klass.getComponentType();
+	/** Subscribe to several PVs, and group their updates by time stamp.
+	 *  @param tolerance Max. difference in time stamps, in seconds, within a group
+	 */
+	public Correlator correlator(String[] names, double tolerance)
+	{
+		return correlator(names, 0, tolerance);
+	}
 
-		if(eklass!=String.class && !eklass.isPrimitive()) {
-			// unbox array values   eg. [Double] -> [double]
+	public Correlator correlator(String[] names, int count, double tolerance)
+	{
+		return new Correlator(monitorGroup(names, count, Monitor.DEFAULT_MASK), tolerance);
+	}
 
-			Class<?> utype = unbox.get(eklass);
-			if(utype==null)
-				throw new RuntimeException("Unable to coerce "+klass.getName()+" into CA writeable");
+	/* Converters from supported Java types to an array of
+	 * a type which CA can write.  Keyed by exact class.
+	 * CA has no 64-bit integer type, so long is written as double.
+	 * boolean is written as short (eg. for ENUM).
+	 */
+	static final Map<Class<?>, Function<Object, Object>> coercers = new HashMap<>();
+	static {
+		// already writable
+		for(Class<?> k : new Class<?>[]{double[].class, float[].class, int[].class,
+				short[].class, byte[].class, String[].class}) {
+			coercers.put(k, v -> v);
+		}
+
+		// scalars
+		coercers.put(Double.class,  v -> new double[]{(Double)v});
+		coercers.put(Float.class,   v -> new float[]{(Float)v});
+		coercers.put(Integer.class, v -> new int[]{(Integer)v});
+		coercers.put(Short.class,   v -> new short[]{(Short)v});
+		coercers.put(Byte.class,    v -> new byte[]{(Byte)v});
+		coercers.put(Long.class,    v -> new double[]{(Long)v});
+		coercers.put(Boolean.class, v -> new short[]{(short)((Boolean)v ? 1 : 0)});
+		coercers.put(String.class,  v -> new String[]{(String)v});
+
+		// primitive arrays
+		coercers.put(long[].class, v -> {
+			long[] in = (long[])v;
+			double[] out = new double[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = in[i];
+			return out;
+		});
+		coercers.put(boolean[].class, v -> {
+			boolean[] in = (boolean[])v;
+			short[] out = new short[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = (short)(in[i] ? 1 : 0);
+			return out;
+		});
+
+		// boxed arrays   eg. [Double] -> [double]
+		coercers.put(Double[].class, v -> {
+			Double[] in = (Double[])v;
+			double[] out = new double[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = in[i];
+			return out;
+		});
+		coercers.put(Float[].class, v -> {
+			Float[] in = (Float[])v;
+			float[] out = new float[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = in[i];
+			return out;
+		});
+		coercers.put(Integer[].class, v -> {
+			Integer[] in = (Integer[])v;
+			int[] out = new int[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = in[i];
+			return out;
+		});
+		coercers.put(Short[].class, v -> {
+			Short[] in = (Short[])v;
+			short[] out = new short[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = in[i];
+			return out;
+		});
+		coercers.put(Byte[].class, v -> {
+			Byte[] in = (Byte[])v;
+			byte[] out = new byte[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = in[i];
+			return out;
+		});
+		coercers.put(Long[].class, v -> {
+			Long[] in = (Long[])v;
+			double[] out = new double[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = in[i];
+			return out;
+		});
+		coercers.put(Boolean[].class, v -> {
+			Boolean[] in = (Boolean[])v;
+			short[] out = new short[in.length];
+			for(int i=0; i<in.length; i++)
+				out[i] = (short)(in[i] ? 1 : 0);
+			return out;
+		});
+		// eg. a MATLAB cell array
+		coercers.put(Object[].class, v -> coerceElements(Arrays.asList((Object[])v)));
+	}
 
-			Object aval = Array.newInstance(utype, count);
-			for(int i=0; i<count; i++) {
-				Array.set(aval, i, Array.get(val, i));
+	// Mixed elements.  All String, or all Number (as double).
+	// Iterates, as 'in' may be a LinkedList.
+	private static Object coerceElements(List<?> in)
+	{
+		int count = in.size(), i = 0;
+		if(count>0 && in.get(0) instanceof String) {
+			String[] out = new String[count];
+			for(Object e : in) {
+				if(!(e instanceof String))
+					throw unableToCoerce(e);
+				out[i++] = (String)e;
 			}
-			val = aval;
+			return out;
+		}
+		double[] out = new double[count];
+		for(Object e : in) {
+			if(!(e instanceof Number))
+				throw unableToCoerce(e);
+			out[i++] = ((Number)e).doubleValue();
 		}
+		return out;
+	}
 
-		return val;
+	private static RuntimeException unableToCoerce(Object e)
+	{
+		return new RuntimeException("Unable to coerce element of "+
+				(e==null ? "null" : e.getClass().getName())+" into CA writeable");
 	}
-	
+
+	/* attempt to convert the provided object into an array of
+	 * a type which CA can write (primitive integer,
+	 * primitive floating point, or String).
+	 */
+	public static Object coerceWritable(Object val) {
+		Function<Object, Object> conv = coercers.get(val.getClass());
+		if(conv!=null) {
+			return conv.apply(val);
+
+		} else if(val instanceof List) {
+			return coerceElements((List<?>)val);
+
+		} else if(val instanceof ByteBuffer) {
+			// remaining bytes, without changing position
+			ByteBuffer buf = ((ByteBuffer)val).duplicate();
+			byte[] out = new byte[buf.remaining()];
+			buf.get(out);
+			return out;
+		}
+
+		throw new RuntimeException("Unable to coerce "+val.getClass().getName()+" into CA writeable");
+	}
+
 	/** Shorthand for write(name, val, false) */
 	public void write(String name, Object val)
 	{
@@ -350,8 +798,9 @@ public class CA implements AutoCloseable {
 
 	/** Issue a CA Put operation
 	 *
-	 * Value may be a scalar String or primitive (byte, short, int, float, or long).
-	 * Arrays of allows scalars are also accepted.
+	 * Value may be a scalar String or primitive (byte, short, int, float, double, long, or boolean).
+	 * Arrays of allowed scalars, boxed or not, are also accepted.  As are Lists or Object[]
+	 * of Number or String, and ByteBuffer (remaining bytes).
 	 *
 	 * @param name PV name
 	 * @param val Value to put.  A String, primitive, or array of primitive
@@ -361,7 +810,16 @@ public class CA implements AutoCloseable {
 	{
 		val = coerceWritable(val);
 		int count = Array.getLength(val);
+		DBRType dtype = putTypeOf(val);
 
+		L.info("Put "+name+" as "+dtype.toString());
+
+		putDBR(name, dtype, count, val, wait);
+	}
+
+	// DBR type for an array returned by coerceWritable()
+	private static DBRType putTypeOf(Object val)
+	{
 		Class<?> klass = val.getClass();
 
 		Class<?> eklass = klass.getComponentType();
@@ -370,9 +828,87 @@ public class CA implements AutoCloseable {
 		if(dtype==null) {
 			throw new RuntimeException("Can't map "+klass.getName()+" to CA compatible type");
 		}
-		L.info("Put "+name+" as "+dtype.toString());
+		return dtype;
+	}
 
-		putDBR(name, dtype, count, val, wait);
+	/** Issue CA Put operations to several PVs
+	 *
+	 * All puts are sent before waiting, with a single flush, and
+	 * all share one timeout.  A failure of one put does not prevent
+	 * the others from being sent.
+	 *
+	 * @param names PV names
+	 * @param values Value to put to each PV.  Same types as accepted by write()
+	 * @param wait Whether to request, and wait for, completion notification
+	 * @return Status for each PV.  null on success, or a description of the error
+	 */
+	public String[] writeMany(String[] names, Object[] values, boolean wait)
+	{
+		if(names.length!=values.length)
+			throw new RuntimeException(String.format("Must provide one value for each PV (%d != %d)",
+					names.length, values.length));
+
+		String[] ret = new String[names.length];
+		@SuppressWarnings({"unchecked","rawtypes"})
+		CompletableFuture<Void>[] puts = new CompletableFuture[names.length];
+		FlushBatch batch = newBatch();
+
+		for(int i=0; i<names.length; i++) {
+			try {
+				Object val = coerceWritable(values[i]);
+				int count = Array.getLength(val);
+				DBRType dtype = putTypeOf(val);
+				L.info("Put "+names[i]+" as "+dtype.toString());
+
+				puts[i] = putDBRAsync(names[i], dtype, count, val, wait, batch);
+			} catch(Exception e) {
+				ret[i] = e.toString();
+			}
+		}
+
+		try {
+			batch.send(ctxt);
+		} catch(CAException e) {
+			throw new RuntimeException("Failed to put PVs", e);
+		}
+
+		// each put was started with the same timeout
+		for(int i=0; i<names.length; i++) {
+			if(puts[i]==null) continue;
+			try {
+				puts[i].get();
+			} catch(ExecutionException e) {
+				ret[i] = e.getCause().toString();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Failed to put PVs", e);
+			}
+		}
+
+		batchDone("Put", names.length, batch);
+		return ret;
+	}
+
+	/** Begin a CA Put operation
+	 *
+	 * Same as write(), but does not block.
+	 * The returned future completes when the put is sent (wait==false),
+	 * when the server acknowledges it (wait==true), or with an error
+	 * on timeout.  Dependent actions run on a CAJ or timer thread, and should not block.
+	 */
+	public CompletableFuture<Void> writeAsync(String name, Object val, boolean wait)
+	{
+		try {
+			val = coerceWritable(val);
+			int count = Array.getLength(val);
+			DBRType dtype = putTypeOf(val);
+
+			L.info("Put "+name+" as "+dtype.toString());
+
+			return putDBRAsync(name, dtype, count, val, wait, null);
+		} catch(RuntimeException e) {
+			return failed(e);
+		}
 	}
 
 	public PValue readM(String pvname)
@@ -382,8 +918,21 @@ public class CA implements AutoCloseable {
 
 	public PValue readM(String pvname, int count)
 	{
-		DBR dbr = getDBR(pvname, null, count);
-		return new PValue(this, dbr);
+		return await(readMAsync(pvname, count), "Failed to get PV");
+	}
+
+	/** Begin fetching value and meta-data.  Same as readM(), but does not block.
+	 *
+	 * Dependent actions run on a CAJ or timer thread, and should not block.
+	 */
+	public CompletableFuture<PValue> readMAsync(String pvname)
+	{
+		return readMAsync(pvname, -1);
+	}
+
+	public CompletableFuture<PValue> readMAsync(String pvname, int count)
+	{
+		return getDBRAsync(pvname, null, count, null).thenApply(dbr -> PValue.of(this, dbr));
 	}
 
 	public Object read(String pvname)
@@ -393,13 +942,207 @@ public class CA implements AutoCloseable {
 
 	public Object read(String pvname, int count)
 	{
-		DBR ret = getDBR(pvname, null, count);
-		if(ret.isSTS()) {
-			STS sts = (STS)ret;
-			if(sts.getSeverity()==Severity.INVALID_ALARM)
-				throw new RuntimeException("INVALID_ALARM active on PV "+pvname);
+		return await(readAsync(pvname, count), "Failed to get PV");
+	}
+
+	/** Begin fetching value.  Same as read(), but does not block.
+	 *
+	 * Dependent actions run on a CAJ or timer thread, and should not block.
+	 */
+	public CompletableFuture<Object> readAsync(String pvname)
+	{
+		return readAsync(pvname, -1);
+	}
+
+	public CompletableFuture<Object> readAsync(final String pvname, int count)
+	{
+		return getDBRAsync(pvname, null, count, null).thenApply(ret -> {
+			if(ret.isSTS()) {
+				STS sts = (STS)ret;
+				if(sts.getSeverity()==Severity.INVALID_ALARM)
+					throw new RuntimeException("INVALID_ALARM active on PV "+pvname);
+			}
+			return ret.getValue();
+		});
+	}
+
+	/** Read a range of array elements.
+	 *
+	 * Non-zero offset uses the server side array filter of EPICS Base >= 3.15
+	 * (see subarrayName()), and so is not supported by older servers.
+	 * The filter is a separate channel, which is connected for each read,
+	 * then disconnected.
+	 *
+	 * @param offset Index of first element
+	 * @param count Number of elements.  Must be >0 when offset!=0
+	 */
+	public Object read(String pvname, int offset, int count)
+	{
+		if(offset==0)
+			return read(pvname, count);
+		String sub = subarrayName(pvname, offset, count);
+		try {
+			return read(sub, -1);
+		} finally {
+			disconnect(sub);
 		}
-		return ret.getValue();
+	}
+
+	public PValue readM(String pvname, int offset, int count)
+	{
+		if(offset==0)
+			return readM(pvname, count);
+		String sub = subarrayName(pvname, offset, count);
+		try {
+			return readM(sub, -1);
+		} finally {
+			disconnect(sub);
+		}
+	}
+
+	/** Name of a channel for a range of array elements, using the server side
+	 *  array filter of EPICS Base >= 3.15.  eg. 'wf.{"arr":{"s":10,"e":19}}'
+	 */
+	public static String subarrayName(String pvname, int offset, int count)
+	{
+		if(offset<0 || count<=0)
+			throw new RuntimeException(String.format("Invalid range offset=%d count=%d", offset, count));
+		// the '.' separating record and field is required before a filter
+		return String.format("%s%s{\"arr\":{\"s\":%d,\"e\":%d}}", pvname,
+				pvname.indexOf('.')<0 ? "." : "", offset, offset+count-1);
+	}
+
+	static final Map<DBRType, Integer> elemsize = new HashMap<>();
+	static {
+		elemsize.put(DBRType.DOUBLE, 8);
+		elemsize.put(DBRType.FLOAT , 4);
+		elemsize.put(DBRType.INT   , 4);
+		elemsize.put(DBRType.SHORT , 2);
+		elemsize.put(DBRType.ENUM  , 2);
+		elemsize.put(DBRType.BYTE  , 1);
+	}
+
+	public int readChunked(String pvname, ByteBuffer dest)
+	{
+		return readChunked(pvname, dest, 65536);
+	}
+
+	/** Read a large array in chunks, directly into a (possibly direct) buffer.
+	 *
+	 * Elements are stored as the native type of the PV in the byte order of 'dest'.
+	 * All chunks are requested before waiting, with a single flush.
+	 * So each message, and thus the max. array bytes, need only be as large as a chunk.
+	 * Chunks after the first are read through the server side array filter (see subarrayName()).
+	 * Each is a separate channel, connected for each call, then disconnected.
+	 * So each call costs a search and connect per chunk.  Larger chunks
+	 * need fewer channels.
+	 *
+	 * Chunks are separate reads, so a waveform which updates while the
+	 * chunks are read will be torn.  This is logged as a warning.
+	 *
+	 * @param dest Elements are stored starting at the current position, which is advanced.
+	 *             Reads at most dest.remaining() bytes.
+	 * @param chunk Max. number of elements in each chunk
+	 * @return Number of elements stored
+	 */
+	public int readChunked(String pvname, ByteBuffer dest, int chunk)
+	{
+		if(chunk<=0)
+			throw new RuntimeException("Chunk size must be >0");
+
+		Descriptor desc = describe(pvname);
+		Integer esize = elemsize.get(desc.getNativeType());
+		if(esize==null)
+			throw new RuntimeException("Can't read "+desc.getNativeType().getName()+" in chunks");
+
+		int nelem = Math.min(desc.getElementCount(), dest.remaining()/esize);
+		int nchunks = (nelem+chunk-1)/chunk;
+
+		@SuppressWarnings({"unchecked","rawtypes"})
+		CompletableFuture<DBR>[] parts = new CompletableFuture[nchunks];
+		String[] subs = new String[Math.max(0, nchunks-1)];
+		FlushBatch batch = newBatch();
+
+		try {
+			for(int i=0; i<nchunks; i++) {
+				int offset = i*chunk, len = Math.min(chunk, nelem-offset);
+				if(offset==0) {
+					parts[i] = getDBRAsync(pvname, desc.getTimeType(), len, batch);
+				} else {
+					subs[i-1] = subarrayName(pvname, offset, len);
+					parts[i] = getDBRAsync(subs[i-1], desc.getTimeType(), -1, batch);
+				}
+			}
+
+			try {
+				batch.send(ctxt);
+			} catch(CAException e) {
+				throw new RuntimeException("Failed to get PV", e);
+			}
+
+			// always wait for all chunks, so that none is in use when disconnected
+			DBR[] dbrs = new DBR[nchunks];
+			RuntimeException err = null;
+			for(int i=0; i<nchunks; i++) {
+				try {
+					dbrs[i] = await(parts[i], "Failed to get PV chunk");
+				} catch(RuntimeException e) {
+					if(err==null)
+						err = e;
+				}
+			}
+			if(err!=null)
+				throw err;
+
+			batchDone("Chunked get", nchunks, batch);
+			return putChunks(pvname, dbrs, dest, nelem, chunk, esize);
+		} finally {
+			// don't keep a channel for each chunk
+			disconnect(subs);
+		}
+	}
+
+	/* Store chunks of up to 'chunk' elements, totalling at most 'nelem'.
+	 * Warns if the time stamps differ.  returns # stored
+	 */
+	static int putChunks(String pvname, DBR[] dbrs, ByteBuffer dest, int nelem, int chunk, int esize)
+	{
+		int total = 0;
+		TimeStamp first = null;
+		for(DBR dbr : dbrs) {
+			TimeStamp ts = PValue.timeOf(dbr);
+			if(first==null)
+				first = ts;
+			else if(first.NE(ts))
+				L.warning("Chunks of "+pvname+" have different time stamps.  Updated during read?");
+
+			int len = Math.min(chunk, nelem-total);
+			len = Math.min(len, putInto(dest, dbr.getValue(), len, esize));
+			total += len;
+			if(len!=chunk)
+				break; // array shorter than expected
+		}
+		return total;
+	}
+
+	// store up to 'max' elements of val.  returns # stored
+	private static int putInto(ByteBuffer dest, Object val, int max, int esize)
+	{
+		int len = Math.min(max, Array.getLength(val));
+		if(val instanceof double[])
+			dest.asDoubleBuffer().put((double[])val, 0, len);
+		else if(val instanceof float[])
+			dest.asFloatBuffer().put((float[])val, 0, len);
+		else if(val instanceof int[])
+			dest.asIntBuffer().put((int[])val, 0, len);
+		else if(val instanceof short[])
+			dest.asShortBuffer().put((short[])val, 0, len);
+		else if(val instanceof byte[])
+			dest.duplicate().put((byte[])val, 0, len);
+		else
+			throw new RuntimeException("Can't store "+val.getClass().getName());
+		dest.position(dest.position()+len*esize);
+		return len;
 	}
 
 	public PValue[] readManyM(String[] names)
@@ -408,7 +1151,7 @@ public class CA implements AutoCloseable {
 		PValue[] ret = new PValue[dbrs.length];
 		for(int i=0; i<dbrs.length; i++) {
 			if(dbrs[i]!=null)
-				ret[i] = new PValue(this, dbrs[i]);
+				ret[i] = PValue.of(this, dbrs[i]);
 		}
 		return ret;
 	}
@@ -422,14 +1165,14 @@ public class CA implements AutoCloseable {
 		L.info("Closing context");
 		if(ctxt!=null) {
 			L.fine("Closing CA context");
-			Map<String, CAJChannel> cmap;
-			synchronized (this) {
-				cmap = new HashMap<>(channels); // copy
-				channels.clear();
-			}
-			for(CAJChannel chan : cmap.values()) {
+			if(idleSweep!=null)
+				idleSweep.cancel(false);
+			subscriptions.clear();
+			List<ChannelEntry> cmap = new ArrayList<>(channels.values()); // copy
+			channels.clear();
+			for(ChannelEntry ent : cmap) {
 				try {
-					chan.destroy();
+					ent.chan.destroy();
 				}catch(Exception e){
 					L.log(Level.SEVERE, "Error to disconnect PV", e);
 				}
@@ -464,18 +1207,21 @@ public class CA implements AutoCloseable {
 	}
 
 	/** Explicitly disconnect a set of PVs without invalidating this object.
+	 *  Channels in use, eg. by an open Monitor, are not disconnected.
 	 *  Use destroy()/close() to cleanup all channels (and invalidate this object).
 	 */
 	public void disconnect(String[] names)
 	{
 		for(String name : names) {
-			CAJChannel chan;
-			synchronized (this) {
-				chan = channels.remove(name);
+			ChannelEntry ent = name==null ? null : channels.get(name);
+			if(ent==null) continue;
+			// a shared Subscription would be left with a destroyed channel
+			if(!ent.tryEvict() || !channels.remove(name, ent)) {
+				L.fine("Not disconnecting "+name+", in use");
+				continue;
 			}
-			if(chan==null) continue;
 			try {
-				chan.destroy();
+				ent.chan.destroy();
 			}catch(Exception e){
 				L.log(Level.SEVERE, "Error to disconnect PV", e);
 			}
@@ -498,13 +1244,109 @@ public class CA implements AutoCloseable {
 	{
 		for(String name : names) {
 			try {
-				lookup(name);
+				release(acquire(name));
 			}catch(Exception e){
 				L.log(Level.SEVERE, "Error to disconnect PV", e);
 			}
 		}
 	}
 
+	public boolean waitConnected(String name, double timeout)
+	{
+		return waitConnected(new String[]{name}, timeout)[0];
+	}
+
+	/** Wait until all of a set of PVs are connected.
+	 *
+	 *  Begins connecting any PVs not already connected (see connect()).
+	 *
+	 *  @param names PV names
+	 *  @param timeout Max. time to wait in seconds.  0 returns immediately.
+	 *  @return The connection state of each PV when all connect, or on timeout.
+	 */
+	public boolean[] waitConnected(String[] names, double timeout)
+	{
+		ChannelEntry[] ents = new ChannelEntry[names.length];
+		List<CompletableFuture<Void>> pending = new ArrayList<>(names.length);
+		boolean[] ret = new boolean[names.length];
+		try {
+			for(int i=0; i<names.length; i++) {
+				try {
+					ents[i] = acquire(names[i]);
+					CompletableFuture<Void> conn = ents[i].whenConnected();
+					if(!conn.isDone())
+						pending.add(conn);
+				}catch(Exception e){
+					L.log(Level.SEVERE, "Error to connect PV", e);
+				}
+			}
+
+			if(!pending.isEmpty() && timeout>0.0) {
+				try {
+					CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+						.get((long)(timeout*1000), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// some not connected
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Failed to wait for connection", e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Failed to wait for connection", e);
+				}
+			}
+
+			for(int i=0; i<names.length; i++) {
+				ret[i] = ents[i]!=null && ents[i].isConnected();
+			}
+			return ret;
+		} finally {
+			for(ChannelEntry ent : ents) {
+				if(ent!=null)
+					release(ent);
+			}
+		}
+	}
+
+	public Descriptor describe(String name)
+	{
+		return describe(name, false);
+	}
+
+	/** Describe a PV.  eg. to size buffers before reading.
+	 *
+	 *  Waits for the PV to connect, subject to the timeout.
+	 *  The description is cached until the PV disconnects.
+	 *
+	 *  @param name PV name
+	 *  @param meta If true, also fetch units, precision, and enum labels
+	 */
+	public Descriptor describe(String name, boolean meta)
+	{
+		ChannelEntry ent = acquire(name);
+		try {
+			ent.whenConnected().get(timeout, TimeUnit.MILLISECONDS);
+
+			Descriptor desc = ent.descriptor();
+			if(desc==null)
+				throw new RuntimeException("Connection lost");
+
+			if(meta && !desc.hasMeta()) {
+				DBR ctrl = getDBR(name, desc.ctrlType(), 1);
+				Descriptor full = desc.withMeta(ctrl);
+				ent.updateDescriptor(desc, full);
+				desc = full;
+			}
+			return desc;
+		} catch (TimeoutException | ExecutionException e) {
+			throw new RuntimeException("Failed to describe PV", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Failed to describe PV", e);
+		} finally {
+			release(ent);
+		}
+	}
+
 	// Generic versions of get*() and put*()
 
 	/** Fetch the value of a PV
@@ -517,31 +1359,33 @@ public class CA implements AutoCloseable {
 	 */
 	private DBR getDBR(String name, DBRType dtype, int count)
 	{
-		try {
-			CAJChannel ch = lookup(name);
-			try(Getter get = new Getter(ch, dtype, count)) {
-
-				long now = System.currentTimeMillis(),
-						end = now+timeout;
-				synchronized (get) {
-					while(!get.done && now<end) {
-						get.wait(end-now);
-						now = System.currentTimeMillis();
-					}
-				}
-
-				if(!get.done)
-					throw new RuntimeException("timeout");
-				else if(get.bad!=null)
-					throw get.bad;
-				else if(!get.status.isSuccessful())
-					throw new RuntimeException("CA Error "+get.status.toString());
+		return await(getDBRAsync(name, dtype, count, null), "Failed to get PV");
+	}
 
-				assert get.data!=null;
-				return get.data;
-			}
-		}catch(Exception e){
-			throw new RuntimeException("Failed to get PV", e);
+	/** Begin fetching the value of a PV
+	 *
+	 * @param name PV name
+	 * @param dtype Requested DBRType or null to get the native type
+	 * @param count Requested # of elements or -1 to get the max
+	 * @param batch Defer flush until batch is sent, or null to flush immediately
+	 * @return Completes with returned data, or fails on timeout or server error
+	 */
+	private CompletableFuture<DBR> getDBRAsync(String name, DBRType dtype, int count, FlushBatch batch)
+	{
+		DBR cached = monitorCached(name, dtype, count);
+		if(cached!=null)
+			return CompletableFuture.completedFuture(cached);
+		if(batch==null)
+			batch = new FlushBatch(nflush, true);
+		try {
+			final ChannelEntry ent = acquire(name);
+			Getter get = new Getter(ent, dtype, count, batch);
+			// released before a caller waiting on the result continues
+			CompletableFuture<DBR> ret = get.result.whenComplete((v, e) -> release(ent));
+			get.start(timeout);
+			return ret;
+		}catch(RuntimeException e){
+			return failed(e);
 		}
 	}
 
@@ -555,46 +1399,38 @@ public class CA implements AutoCloseable {
 	 */
 	private DBR[] getDBRs(String[] names, DBRType dtype, int count)
 	{
-		CAJChannel[] chans = new CAJChannel[names.length];
-		Getter[] getters = new Getter[names.length];
+		@SuppressWarnings({"unchecked","rawtypes"})
+		CompletableFuture<DBR>[] gets = new CompletableFuture[names.length];
 		DBR[] ret = new DBR[names.length];
-		try {
-			for(int i=0; i<names.length; i++) {
-				chans[i] = lookup(names[i]);
-				getters[i] = new Getter(chans[i], dtype, count);
-			}
-
-			long now = System.currentTimeMillis(),
-					end = now+timeout;
+		FlushBatch batch = newBatch();
 
-			for(int i=0; i<names.length && now<end; i++) {
-				synchronized (getters[i]) {
-					while(!getters[i].done && now<end) {
-						getters[i].wait(end-now);
-						now = System.currentTimeMillis();
-					}
-				}
-			}
-
-			for(int i=0; i<names.length; i++) {
-				if(getters[i].bad!=null)
-					throw getters[i].bad;
-				ret[i] = getters[i].data;
-				//TODO, something with .status
-			}
+		for(int i=0; i<names.length; i++) {
+			gets[i] = getDBRAsync(names[i], dtype, count, batch);
+		}
 
-			return ret;
-		}catch(Exception e){
+		try {
+			batch.send(ctxt);
+		} catch(CAException e) {
 			throw new RuntimeException("Failed to get PV", e);
-		}finally{
-			for(Getter get : getters) {
-				try {
-					get.close();
-				} catch (Exception e) {
-					L.log(Level.WARNING, "Error cleaning up Getter", e);
-				}
+		}
+
+		// each get was started with the same timeout
+		for(int i=0; i<names.length; i++) {
+			try {
+				ret[i] = gets[i].get();
+			} catch(ExecutionException e) {
+				Throwable cause = e.getCause();
+				if(!(cause instanceof TimeoutException) && !(cause instanceof CAStatusException))
+					throw new RuntimeException("Failed to get PV", cause);
+				//TODO, something with CA error status
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Failed to get PV", e);
 			}
 		}
+
+		batchDone("Get", names.length, batch);
+		return ret;
 	}
 
 
@@ -609,31 +1445,60 @@ public class CA implements AutoCloseable {
 	 */
 	private void putDBR(String name, DBRType dtype, int count, Object val, boolean wait)
 	{
+		await(putDBRAsync(name, dtype, count, val, wait, null), "Failed to put PV");
+	}
+
+	private CompletableFuture<Void> putDBRAsync(String name, DBRType dtype, int count, Object val,
+			boolean wait, FlushBatch batch)
+	{
+		if(batch==null)
+			batch = new FlushBatch(nflush, true);
 		try {
-			CAJChannel ch = lookup(name);
-			try (Putter putter = new Putter(ch, dtype, count, val, wait)) {
+			final ChannelEntry ent = acquire(name);
+			Putter putter = new Putter(ent, dtype, count, val, wait, batch);
+			putter.result.whenComplete((v, e) -> release(ent));
+			putter.start(timeout);
+			return putter.result;
+		}catch(RuntimeException e){
+			return failed(e);
+		}
+	}
 
-				long now = System.currentTimeMillis(),
-						end = now+timeout;
+	// Wait for completion of an operation started by one of the *Async() methods
+	private static <T> T await(CompletableFuture<T> op, String msg)
+	{
+		try {
+			return op.get();
+		} catch (ExecutionException e) {
+			throw new RuntimeException(msg, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(msg, e);
+		}
+	}
 
-				synchronized (putter) {
-					while(!putter.done && now<end) {
-						putter.wait(end-now);
-						now = System.currentTimeMillis();
-					}
-				}
+	private static <T> CompletableFuture<T> failed(Throwable e)
+	{
+		CompletableFuture<T> ret = new CompletableFuture<>();
+		ret.completeExceptionally(e);
+		return ret;
+	}
 
-				if(!putter.done)
-					throw new RuntimeException("timeout");
-				else if(putter.bad!=null)
-					throw putter.bad;
-				else if(!putter.status.isSuccessful())
-					throw new RuntimeException("CA error : "+putter.status.toString());
-			}
-		}catch(Exception e){
-			throw new RuntimeException("Failed to put PV", e);
-		}
+	// Expires pending operations of all contexts
+	static final ScheduledThreadPoolExecutor timers = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread T = new Thread(r, "yascaif timer");
+		T.setDaemon(true);
+		return T;
+	});
+	static {
+		timers.setRemoveOnCancelPolicy(true);
 	}
+	// delivers updates held by a Monitor rate limit, which may call listeners
+	static final ExecutorService heldUpdates = Executors.newSingleThreadExecutor(r -> {
+		Thread T = new Thread(r, "yascaif rate limit");
+		T.setDaemon(true);
+		return T;
+	});
 
 	// Inner classes for callbacks
 
@@ -646,70 +1511,140 @@ public class CA implements AutoCloseable {
 		promotemap.put(DBRType.INT   , DBRType.TIME_INT);
 		promotemap.put(DBRType.SHORT , DBRType.TIME_SHORT);
 		promotemap.put(DBRType.BYTE  , DBRType.TIME_BYTE);
+		promotemap.put(DBRType.ENUM  , DBRType.TIME_ENUM);
 		// maybe handles CLASS_NAME and similar?
 		promotemap.put(DBRType.UNKNOWN, DBRType.TIME_STRING);
 	}
 
+	/* Defers flushIO() for a group of requests until all have been queued.
+	 * Requests on channels which connect only after send() has been
+	 * called are flushed from the timer thread, which coalesces
+	 * requests queued while a flush is pending.
+	 * Single requests use a batch which is already sent, and flush immediately.
+	 */
+	static class FlushBatch
+	{
+		private final AtomicLong total;
+		private final boolean defer;
+		private boolean sent;
+		private boolean pending = false;
+		private int nflush = 0;
+
+		FlushBatch(AtomicLong total, boolean sent)
+		{
+			this.total = total;
+			this.sent = sent;
+			defer = !sent;
+		}
+
+		void send(Context ctxt) throws CAException
+		{
+			synchronized (this) {
+				sent = true;
+				nflush++;
+			}
+			total.incrementAndGet();
+			ctxt.flushIO();
+		}
+
+		void flushIfSent(final Context ctxt) throws CAException
+		{
+			synchronized (this) {
+				if(!sent || pending)
+					return;
+				nflush++;
+				pending = defer;
+			}
+			total.incrementAndGet();
+			if(!defer) {
+				ctxt.flushIO();
+				return;
+			}
+			timers.execute(() -> {
+				synchronized (FlushBatch.this) {
+					pending = false;
+				}
+				try {
+					ctxt.flushIO();
+				} catch (Exception e) {
+					L.log(Level.WARNING, "Error flushing batch", e);
+				}
+			});
+		}
+
+		synchronized int flushes() { return nflush; }
+	}
+
+	FlushBatch newBatch()
+	{
+		return new FlushBatch(nflush, false);
+	}
+
+	// Log, and remember, the number of flushes by a multi-PV operation
+	private void batchDone(String what, int npvs, FlushBatch batch)
+	{
+		int n = batch.flushes();
+		lastBatchFlushes = n;
+		L.fine(String.format("%s of %d PVs with %d flush(es)", what, npvs, n));
+	}
+
 	// Helper for one-shot get/put operations
-	static private abstract class OnConn implements ConnectionListener, AutoCloseable
+	static private abstract class OnConn<T> implements ConnectionListener
 	{
-		protected CAJChannel chan;
-		// Have we notified yet?
-		public boolean done = false;
-		// Have we called onConnect()?
+		protected final ChannelEntry entry;
+		protected final CAJChannel chan;
+		// valid in onConnect()
+		protected Descriptor desc;
+		// Have we called onConnect()?  Guarded by chan
 		protected boolean beenconn = false;
-		protected boolean listenconn = false;
 
 		public DBRType dtype;
 		public int dcount;
+		protected final FlushBatch batch;
 
-		public CAStatus status = CAStatus.IOINPROGESS;
-		public DBR data;
-		public Exception bad;
+		// Completed from CAJ callbacks, or by the timer
+		public final CompletableFuture<T> result = new CompletableFuture<>();
 
-		OnConn(CAJChannel ch, DBRType dt, int dc) {
-			chan = ch;
+		OnConn(ChannelEntry ent, DBRType dt, int dc, FlushBatch b) {
+			entry = ent;
+			chan = ent.chan;
 			dtype = dt;
 			dcount = dc;
+			batch = b;
 		}
 
-		@Override
-		public void close() throws Exception {}
+		// Begin operation, which will fail after tmo milliseconds
+		void start(long tmo)
 		{
-			if(listenconn) {
-				try {
-					chan.removeConnectionListener(this);
-				} catch (Exception e) {
-					throw new RuntimeException("error removing listener", e);
-				}
+			final ScheduledFuture<?> timer = timers.schedule(
+					() -> result.completeExceptionally(new TimeoutException("timeout")),
+					tmo, TimeUnit.MILLISECONDS);
+			result.whenComplete((v, e) -> {
+				timer.cancel(false);
+				close();
+			});
+
+			try {
+				chan.addConnectionListenerAndFireIfConnected(this);
+			} catch (Exception e) {
+				result.completeExceptionally(new RuntimeException("error adding listener", e));
 			}
+			if(result.isDone())
+				close(); // may have completed before listener was added
 		}
 
-		protected void doConnect()
+		void close()
 		{
-			synchronized (chan) {
-				try {
-					chan.addConnectionListenerAndFireIfConnected(this);
-					listenconn = true;
-				} catch (Exception e) {
-					throw new RuntimeException("error adding listener", e);
-				}
+			try {
+				chan.removeConnectionListener(this);
+			} catch (Exception e) {
+				L.log(Level.FINE, "error removing listener", e);
 			}
 		}
 
 		@Override
 		public void connectionChanged(ConnectionEvent ev) {
-			if(done) return;
-
-			if(ev.isConnected()) {
-				if(dtype==null) {
-					dtype = chan.getFieldType();
-					DBRType pt = promotemap.get(dtype);
-					if(pt!=null) dtype = pt;
-				}
-				if(dcount<0)
-					dcount = 0; // CAJ supports dynamic array size
-			}
+			if(result.isDone()) return;
 
 			L.info(String.format("connectionChanged '%s' %sconnected",
 					chan.getName(), ev.isConnected()?"":"dis"));
@@ -719,83 +1654,77 @@ public class CA implements AutoCloseable {
 					synchronized (chan) {
 						if(!beenconn) {
 							beenconn = true;
+							desc = entry.descriptor();
+							if(desc==null)
+								throw new RuntimeException("Connection lost");
+							if(dtype==null)
+								dtype = desc.getTimeType();
+							if(dcount<0)
+								dcount = 0; // CAJ supports dynamic array size
 							onConnect();
 						}
 					}
-				} catch (CAStatusException e) {
-					synchronized (this) {
-						done = true;
-						status = e.getStatus();
-						assert !status.isSuccessful();
-						notify();
-					}
 				} catch (Exception e) {
-					synchronized (this) {
-						bad = e;
-						done = true;
-						notify();
-					}
+					result.completeExceptionally(e);
 				}
 			} else {
 				// oops, became disconnected
 				// notify of failure
-				synchronized(this) {
-					done = true;
-					bad = new RuntimeException("Connection lost");
-					status = CAStatus.DISCONN;
-					notify();
-				}
+				result.completeExceptionally(new RuntimeException("Connection lost"));
 			}
 		}
 
 		// Called within synchronized(chan) {}
 		protected abstract void onConnect() throws Exception;
+
+		protected void flush() throws CAException
+		{
+			batch.flushIfSent(chan.getContext());
+		}
 	}
 
-	static private class Getter extends OnConn implements GetListener
+	static private class Getter extends OnConn<DBR> implements GetListener
 	{
 
-		public Getter(CAJChannel chan, DBRType t, int c) {
-			super(chan, t, c);
-			doConnect();
+		public Getter(ChannelEntry ent, DBRType t, int c, FlushBatch b) {
+			super(ent, t, c, b);
 		}
 
 		@Override
 		public void onConnect() throws Exception {
+			if(dcount>desc.getElementCount())
+				dcount = 0; // ask for all elements
 			L.info(String.format("get request '%s' for %d", chan.getName(), dcount));
 			chan.get(dtype, dcount, this);
-			chan.getContext().flushIO();
+			flush();
 		}
 
 		@Override
 		public void getCompleted(GetEvent ev) {
 			L.info(String.format("getComplete '%s'",chan.getName()));
-			synchronized (this) {
-				status = ev.getStatus();
-				data = ev.getDBR();
-				done = true;
-
-				notify();
-			}
+			CAStatus status = ev.getStatus();
+			if(status.isSuccessful())
+				result.complete(ev.getDBR());
+			else
+				result.completeExceptionally(new CAStatusException(status, "CA Error "+status.toString()));
 		}
 	}
 
-	static private class Putter extends OnConn implements PutListener
+	static private class Putter extends OnConn<Void> implements PutListener
 	{
 		private Object val;
 		private boolean wait;
 
-		public Putter(CAJChannel ch, DBRType d, int c, Object v, boolean w)
+		public Putter(ChannelEntry ent, DBRType d, int c, Object v, boolean w, FlushBatch b)
 		{
-			super(ch, d, c);
+			super(ent, d, c, b);
 			val = v;
 			wait = w;
-			doConnect();
 		}
 
 		@Override
 		public void onConnect() throws Exception {
-			int maxcount = chan.getElementCount();
+			int maxcount = desc.getElementCount();
 			if(dcount>maxcount) {
 				throw new RuntimeException(String.format("Can't put %d elements to %s (max %d)",
 						dcount, chan.getName(), maxcount));
@@ -805,26 +1734,22 @@ public class CA implements AutoCloseable {
 			} else {
 				chan.put(dtype, dcount, val);
 			}
-			chan.getContext().flushIO();
+			flush();
 			if(!wait) {
 				// Done now if not waiting for completion
 				// otherwise done in putCompleted()
-				synchronized (this) {
-					status = CAStatus.NORMAL;
-					done = true;
-					notify();
-				}
+				result.complete(null);
 			}
 		}
 
 		@Override
-		public synchronized void putCompleted(PutEvent ev) {
+		public void putCompleted(PutEvent ev) {
 			L.info(String.format("putCompleted '%s'",chan.getName()));
-			synchronized (this) {
-				status = ev.getStatus();
-				done = true;
-				notify();
-			}
+			CAStatus status = ev.getStatus();
+			if(status.isSuccessful())
+				result.complete(null);
+			else
+				result.completeExceptionally(new CAStatusException(status, "CA error : "+status.toString()));
 		}
 	}
 }
@@ -0,0 +1,131 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.aps.jca.Channel;
+import gov.aps.jca.event.ConnectionEvent;
+import gov.aps.jca.event.ConnectionListener;
+
+import com.cosylab.epics.caj.CAJChannel;
+
+/** Book keeping for one cached channel of a CA context.
+ *
+ *  An entry is pinned while any operation or Monitor is using it.
+ *  Pinned entries are never evicted.  An evicted entry can not be
+ *  pinned again, and is replaced by a new entry on next use.
+ *
+ *  Also tracks connection state for waitConnected(),
+ *  caches a Descriptor for the current connection,
+ *  and remembers a Subscription which can serve reads.
+ */
+final class ChannelEntry implements ConnectionListener {
+	final String name;
+	final CAJChannel chan;
+
+	// # of pins, or -1 once evicted
+	private final AtomicInteger refs = new AtomicInteger();
+	volatile long lastUsed = System.currentTimeMillis();
+
+	// completed on connect, replaced on disconnect
+	private volatile CompletableFuture<Void> connected = new CompletableFuture<>();
+	// valid while connected
+	private volatile Descriptor desc;
+	// a live subscription to the full value, for reads from the monitor cache
+	volatile Subscription valueSub;
+
+	ChannelEntry(String name, CAJChannel chan)
+	{
+		this.name = name;
+		this.chan = chan;
+		try {
+			chan.addConnectionListenerAndFireIfConnected(this);
+		} catch (Exception e) {
+			throw new RuntimeException("error adding listener", e);
+		}
+	}
+
+	boolean tryAcquire()
+	{
+		while(true) {
+			int cur = refs.get();
+			if(cur<0)
+				return false;
+			if(refs.compareAndSet(cur, cur+1)) {
+				lastUsed = System.currentTimeMillis();
+				return true;
+			}
+		}
+	}
+
+	void release()
+	{
+		lastUsed = System.currentTimeMillis();
+		int cur = refs.decrementAndGet();
+		assert cur>=0;
+	}
+
+	boolean tryEvict()
+	{
+		return refs.compareAndSet(0, -1);
+	}
+
+	/** Completes when next connected, or immediately if currently connected */
+	CompletableFuture<Void> whenConnected()
+	{
+		return connected;
+	}
+
+	/** Descriptor for the current connection, or null if not connected */
+	Descriptor descriptor()
+	{
+		Descriptor d = desc;
+		if(d==null && isConnected()) {
+			// may be called before our connectionChanged()
+			synchronized (this) {
+				d = desc;
+				if(d==null) {
+					d = new Descriptor(chan);
+					desc = d;
+				}
+			}
+		}
+		return d;
+	}
+
+	// Replace the descriptor, unless there has been a (re)connect since 'prev' was fetched
+	synchronized void updateDescriptor(Descriptor prev, Descriptor next)
+	{
+		if(desc==prev)
+			desc = next;
+	}
+
+	boolean isConnected()
+	{
+		return chan.getConnectionState()==Channel.ConnectionState.CONNECTED;
+	}
+
+	@Override
+	public void connectionChanged(ConnectionEvent ev)
+	{
+		CompletableFuture<Void> done = null;
+		synchronized (this) {
+			if(ev.isConnected()) {
+				desc = new Descriptor(chan);
+				done = connected;
+			} else {
+				desc = null;
+				if(connected.isDone())
+					connected = new CompletableFuture<>();
+			}
+		}
+		if(done!=null)
+			done.complete(null);
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/** Group updates of several PVs by time stamp.
+ *
+ *  Recent updates are buffered for each PV.  A Snapshot is formed when every
+ *  PV has an update with a time stamp within 'tolerance' seconds of the
+ *  oldest buffered update.  Snapshots are incomplete when some PV
+ *  can no longer provide a match, either because it has a later update,
+ *  or because another PV has buffered 'depth' updates while waiting.
+ *
+ *  Values are not copied.  Not thread safe.  Intended to be polled
+ *  by a single consumer with next().
+ */
+public class Correlator implements AutoCloseable {
+
+	/** Updates of all PVs with (nearly) the same time stamp */
+	public static class Snapshot {
+		private final double time;
+		private final PValue[] values;
+		private final int missing;
+
+		Snapshot(double time, PValue[] values, int missing)
+		{
+			this.time = time;
+			this.values = values;
+			this.missing = missing;
+		}
+
+		/** Earliest time stamp of the group, as from PValue.getTime() */
+		public double getTime() { return time; }
+		/** One per PV, in the order given to CA.correlator().  null for a missing PV. */
+		public PValue[] getValues() { return values; }
+		public PValue getValue(int index) { return values[index]; }
+		/** Number of PVs without a matching update */
+		public int getMissing() { return missing; }
+		public boolean isComplete() { return missing==0; }
+
+		@Override
+		public String toString() {
+			return String.format("Snapshot(%f, %d/%d)", time, values.length-missing, values.length);
+		}
+	}
+
+	private final MonitorGroup group;
+	private final ArrayDeque<PValue>[] buffers;
+	private double tolerance;
+	private int depth = 16;
+	private boolean reportIncomplete = true;
+	private long complete, incomplete;
+
+	Correlator(MonitorGroup group, double tolerance)
+	{
+		this.group = group;
+		this.tolerance = tolerance;
+		@SuppressWarnings({"unchecked","rawtypes"})
+		ArrayDeque<PValue>[] bufs = new ArrayDeque[group.size()];
+		buffers = bufs;
+		for(int i=0; i<buffers.length; i++)
+			buffers[i] = new ArrayDeque<>();
+		group.setCapacity(Math.max(1024, 4*group.size()));
+	}
+
+	@Override
+	public void close()
+	{
+		group.close();
+	}
+
+	/** The underlying subscriptions */
+	public MonitorGroup getGroup() { return group; }
+
+	/** Max. difference in time stamps, in seconds, within a Snapshot */
+	public void setTolerance(double t) { tolerance = Math.max(0.0, t); }
+	public double getTolerance() { return tolerance; }
+
+	/** Max. number of updates buffered for each PV */
+	public void setDepth(int d) { depth = Math.max(1, d); }
+	public int getDepth() { return depth; }
+
+	/** If false, next() skips incomplete Snapshots.  Default true. */
+	public void setReportIncomplete(boolean r) { reportIncomplete = r; }
+
+	/** Number of complete Snapshots formed */
+	public long getCompleteCount() { return complete; }
+	/** Number of incomplete Snapshots formed (whether reported or not) */
+	public long getIncompleteCount() { return incomplete; }
+
+	/** Wait for the next Snapshot.
+	 *
+	 *  timeout<0 waits forever, timeout==0 only checks already received updates.
+	 *  @return null on timeout
+	 */
+	public Snapshot next(double timeout) throws InterruptedException
+	{
+		final long deadline = System.nanoTime()+(long)(timeout*1e9);
+		while(true) {
+			// take everything already queued
+			MonitorGroup.Event ev;
+			while((ev=group.waitForAny(0.0))!=null)
+				add(ev);
+
+			Snapshot snap;
+			while((snap=match())!=null) {
+				if(snap.isComplete() || reportIncomplete)
+					return snap;
+			}
+
+			double remaining;
+			if(timeout<0.0)
+				remaining = -1.0;
+			else if(timeout==0.0)
+				return null;
+			else if((remaining=(deadline-System.nanoTime())*1e-9)<=0.0)
+				return null;
+			ev = group.waitForAny(remaining);
+			if(ev==null)
+				return null;
+			add(ev);
+		}
+	}
+
+	private void add(MonitorGroup.Event ev)
+	{
+		ArrayDeque<PValue> buf = buffers[ev.getIndex()];
+		buf.addLast(ev.getValue());
+	}
+
+	/* Try to form one Snapshot anchored at the oldest buffered time.
+	 * Consumes the matched updates.
+	 * Returns null if more updates are needed.
+	 */
+	private Snapshot match()
+	{
+		final int N = buffers.length;
+		double anchor = Double.POSITIVE_INFINITY;
+		boolean full = false;
+		for(ArrayDeque<PValue> buf : buffers) {
+			PValue head = buf.peekFirst();
+			if(head!=null)
+				anchor = Math.min(anchor, head.getTime());
+			full |= buf.size()>=depth;
+		}
+		if(anchor==Double.POSITIVE_INFINITY)
+			return null; // nothing buffered
+
+		final double limit = anchor+tolerance;
+		PValue[] found = new PValue[N];
+		int missing = 0;
+		boolean waiting = false;
+		for(int i=0; i<N; i++) {
+			// updates of one PV arrive in time order, so only the oldest can match
+			PValue head = buffers[i].peekFirst();
+			if(head!=null && head.getTime()<=limit) {
+				found[i] = head;
+			} else {
+				missing++;
+				// a PV with a later update can't match this anchor
+				waiting |= head==null;
+			}
+		}
+
+		if(waiting && !full)
+			return null;
+
+		for(int i=0; i<N; i++) {
+			if(found[i]!=null)
+				buffers[i].pollFirst();
+		}
+
+		if(missing==0)
+			complete++;
+		else
+			incomplete++;
+		return new Snapshot(anchor, found, missing);
+	}
+
+	/** Discard buffered and queued updates */
+	public void clear()
+	{
+		group.clear();
+		for(ArrayDeque<PValue> buf : buffers)
+			buf.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "Correlator("+Arrays.toString(bufferSizes())+")";
+	}
+
+	private int[] bufferSizes()
+	{
+		int[] ret = new int[buffers.length];
+		for(int i=0; i<ret.length; i++)
+			ret[i] = buffers[i].size();
+		return ret;
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.GR;
+import gov.aps.jca.dbr.LABELS;
+import gov.aps.jca.dbr.PRECISION;
+
+import com.cosylab.epics.caj.CAJChannel;
+
+/** Immutable description of a connected channel.
+ *
+ *  Computed once per connection, and discarded on disconnect.
+ *  Units, precision, and enum labels are only present if requested
+ *  with CA.describe(name, true).
+ */
+public class Descriptor {
+	private final String name;
+	private final String host;
+	private final DBRType nativeType;
+	private final DBRType timeType;
+	private final int count;
+
+	private final boolean meta;
+	private final String units;
+	private final int precision;
+	private final String[] labels;
+
+	Descriptor(CAJChannel chan)
+	{
+		name = chan.getName();
+		host = chan.getHostName();
+		nativeType = chan.getFieldType();
+		DBRType pt = CA.promotemap.get(nativeType);
+		timeType = pt!=null ? pt : nativeType;
+		count = chan.getElementCount();
+		meta = false;
+		units = null;
+		precision = -1;
+		labels = null;
+	}
+
+	private Descriptor(Descriptor o, DBR ctrl)
+	{
+		name = o.name;
+		host = o.host;
+		nativeType = o.nativeType;
+		timeType = o.timeType;
+		count = o.count;
+		meta = true;
+		units = ctrl instanceof GR ? ((GR)ctrl).getUnits() : null;
+		precision = ctrl instanceof PRECISION ? ((PRECISION)ctrl).getPrecision() : -1;
+		labels = ctrl instanceof LABELS ? ((LABELS)ctrl).getLabels() : null;
+	}
+
+	private static final Map<DBRType, DBRType> ctrlmap = new HashMap<>();
+	static {
+		ctrlmap.put(DBRType.DOUBLE, DBRType.CTRL_DOUBLE);
+		ctrlmap.put(DBRType.FLOAT , DBRType.CTRL_FLOAT);
+		ctrlmap.put(DBRType.INT   , DBRType.CTRL_INT);
+		ctrlmap.put(DBRType.SHORT , DBRType.CTRL_SHORT);
+		ctrlmap.put(DBRType.BYTE  , DBRType.CTRL_BYTE);
+		ctrlmap.put(DBRType.ENUM  , DBRType.CTRL_ENUM);
+	}
+
+	// DBR type to fetch meta-data, or null if there is none
+	DBRType ctrlType() { return ctrlmap.get(nativeType); }
+
+	boolean hasMeta() { return meta || ctrlType()==null; }
+
+	Descriptor withMeta(DBR ctrl) { return new Descriptor(this, ctrl); }
+
+	public String getName() { return name; }
+	/** Host:port of the server */
+	public String getHostName() { return host; }
+	/** Native field type */
+	public DBRType getNativeType() { return nativeType; }
+	/** Type requested by read() and monitor(), normally the TIME_* of the native type */
+	public DBRType getTimeType() { return timeType; }
+	/** Max. number of elements */
+	public int getElementCount() { return count; }
+	/** Engineering units, or null */
+	public String getUnits() { return units; }
+	/** Display precision, or -1 */
+	public int getPrecision() { return precision; }
+	/** Enum state labels, or null */
+	public String[] getLabels() { return labels; }
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append(name);
+		b.append(" ");
+		b.append(nativeType.getName());
+		b.append("[");
+		b.append(count);
+		b.append("] from ");
+		b.append(host);
+		if(units!=null) {
+			b.append(" units=");
+			b.append(units);
+		}
+		if(labels!=null) {
+			b.append(" labels=");
+			b.append(Arrays.toString(labels));
+		}
+		return b.toString();
+	}
+}
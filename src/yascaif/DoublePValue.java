@@ -0,0 +1,49 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+
+/** PValue holding a double[], eg. from DBR_DOUBLE */
+public class DoublePValue extends PValue {
+	private static final long serialVersionUID = 3676721741493549484L;
+
+	private final double[] data;
+
+	DoublePValue(Object src, double[] val, int cnt, int sevr, TimeStamp ts) {
+		super(src, val, cnt, sevr, ts);
+		data = val;
+	}
+
+	@Override
+	public double getDouble(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	@Override
+	public double[] getDoubles()
+	{
+		return Arrays.copyOf(data, count);
+	}
+
+	@Override
+	public String getString(int i)
+	{
+		checkIndex(i);
+		return String.valueOf(data[i]);
+	}
+
+	@Override
+	protected void appendElement(StringBuilder b, int i)
+	{
+		b.append(data[i]);
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/** Bounded, preallocated, lock-free FIFO.
+ *
+ *  A sequence number per slot (cf. D. Vyukov's bounded MPMC queue)
+ *  allows any number of producers and consumers.
+ *  The common case of a single producer never retries.
+ *
+ *  Consumers may park in poll(timeout).  Producers only pay for
+ *  a wakeup when a consumer is actually waiting.
+ */
+final class EventRing<E> {
+	private final int capacity;
+	// sequence numbers need at least two slots to tell full from empty
+	private final int slots;
+	private final AtomicReferenceArray<E> items;
+	// slot is writable for position p when seq==p, readable when seq==p+1
+	private final AtomicLongArray seqs;
+	private final AtomicLong head = new AtomicLong(), // next to poll
+	                         tail = new AtomicLong(); // next to offer
+
+	private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+	private volatile boolean retired = false;
+
+	EventRing(int capacity)
+	{
+		if(capacity<1)
+			throw new IllegalArgumentException("capacity must be >=1");
+		this.capacity = capacity;
+		slots = Math.max(2, capacity);
+		items = new AtomicReferenceArray<>(slots);
+		seqs = new AtomicLongArray(slots);
+		for(int i=0; i<slots; i++)
+			seqs.set(i, i);
+	}
+
+	int capacity() { return capacity; }
+
+	int size()
+	{
+		long n = tail.get()-head.get();
+		return (int)Math.max(0, Math.min(capacity, n));
+	}
+
+	/** Append, unless full.
+	 * @return false if full
+	 */
+	boolean offer(E e)
+	{
+		long pos = tail.get();
+		while(true) {
+			if(slots!=capacity && pos-head.get()>=capacity)
+				return false; // full
+			int idx = (int)(pos % slots);
+			long dif = seqs.get(idx) - pos;
+			if(dif==0) {
+				if(tail.compareAndSet(pos, pos+1)) {
+					items.set(idx, e);
+					seqs.set(idx, pos+1); // publish
+					if(!waiters.isEmpty())
+						wakeAll();
+					return true;
+				}
+				pos = tail.get();
+			} else if(dif<0) {
+				return false; // full
+			} else {
+				pos = tail.get(); // raced with another producer
+			}
+		}
+	}
+
+	/** Append, discarding the oldest elements if full.
+	 * @return number of elements discarded
+	 */
+	int put(E e)
+	{
+		return put(e, null);
+	}
+
+	/** Append, discarding the oldest elements if full.
+	 * @param evicted if not null, is passed each discarded element
+	 * @return number of elements discarded
+	 */
+	int put(E e, Consumer<? super E> evicted)
+	{
+		int n = 0;
+		while(!offer(e)) {
+			E old = poll();
+			if(old!=null) {
+				n++;
+				if(evicted!=null)
+					evicted.accept(old);
+			}
+		}
+		return n;
+	}
+
+	/** Move all elements into another ring with put().
+	 * @return number of elements discarded
+	 */
+	int transferTo(EventRing<E> to, Consumer<? super E> evicted)
+	{
+		int n = 0;
+		E e;
+		while((e=poll())!=null)
+			n += to.put(e, evicted);
+		return n;
+	}
+
+	/** Replace the newest element, unless empty, or it is being consumed.
+	 * @return the replaced element, or null if not replaced
+	 */
+	E replaceNewest(E e)
+	{
+		long pos = tail.get()-1;
+		if(pos<head.get())
+			return null; // empty
+		int idx = (int)(pos % slots);
+		E prev = items.get(idx);
+		if(prev==null || seqs.get(idx)!=pos+1)
+			return null; // not yet published, or already consumed
+		// fails if consumed, or re-used, after the checks above
+		return items.compareAndSet(idx, prev, e) ? prev : null;
+	}
+
+	/** Remove oldest, or return null if empty */
+	E poll()
+	{
+		long pos = head.get();
+		while(true) {
+			int idx = (int)(pos % slots);
+			long dif = seqs.get(idx) - (pos+1);
+			if(dif==0) {
+				if(head.compareAndSet(pos, pos+1)) {
+					E e = items.getAndSet(idx, null);
+					seqs.set(idx, pos+slots); // release slot
+					return e;
+				}
+				pos = head.get();
+			} else if(dif<0) {
+				return null; // empty
+			} else {
+				pos = head.get(); // raced with another consumer
+			}
+		}
+	}
+
+	/** Remove oldest, waiting if empty.
+	 *
+	 * @param nanos <0 waits forever, 0 polls without waiting
+	 * @return null on timeout, or if retired
+	 */
+	E poll(long nanos) throws InterruptedException
+	{
+		E e = poll();
+		if(e!=null || nanos==0)
+			return e;
+
+		final long deadline = System.nanoTime()+nanos;
+		final Thread self = Thread.currentThread();
+		waiters.add(self);
+		try {
+			while(true) {
+				// check after adding to waiters to avoid a lost wakeup
+				e = poll();
+				if(e!=null || retired)
+					return e;
+				if(Thread.interrupted())
+					throw new InterruptedException();
+				if(nanos<0) {
+					LockSupport.park(this);
+				} else {
+					long remaining = deadline-System.nanoTime();
+					if(remaining<=0)
+						return null;
+					LockSupport.parkNanos(this, remaining);
+				}
+			}
+		} finally {
+			waiters.remove(self);
+		}
+	}
+
+	void clear()
+	{
+		clear(null);
+	}
+
+	void clear(Consumer<? super E> removed)
+	{
+		E e;
+		while((e=poll())!=null) {
+			if(removed!=null)
+				removed.accept(e);
+		}
+	}
+
+	/** Wake any waiting consumers, which return null.
+	 *  eg. when this ring is being replaced.
+	 */
+	void retire()
+	{
+		retired = true;
+		wakeAll();
+	}
+
+	private void wakeAll()
+	{
+		for(Thread T : waiters)
+			LockSupport.unpark(T);
+	}
+}
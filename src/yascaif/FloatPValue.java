@@ -0,0 +1,65 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+
+/** PValue holding a float[], eg. from DBR_FLOAT */
+public class FloatPValue extends PValue {
+	private static final long serialVersionUID = 5750685794350320527L;
+
+	private final float[] data;
+
+	FloatPValue(Object src, float[] val, int cnt, int sevr, TimeStamp ts) {
+		super(src, val, cnt, sevr, ts);
+		data = val;
+	}
+
+	/** Element 'i' */
+	public float getFloatValue(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	/** Copy of the valid elements */
+	public float[] getFloatValues()
+	{
+		return Arrays.copyOf(data, count);
+	}
+
+	@Override
+	public double getDouble(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	@Override
+	public double[] getDoubles()
+	{
+		double[] ret = new double[count];
+		for(int i=0; i<count; i++)
+			ret[i] = data[i];
+		return ret;
+	}
+
+	@Override
+	public String getString(int i)
+	{
+		checkIndex(i);
+		return String.valueOf(data[i]);
+	}
+
+	@Override
+	protected void appendElement(StringBuilder b, int i)
+	{
+		b.append(data[i]);
+	}
+}
@@ -0,0 +1,209 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+
+/** Fixed size ring of recent updates for one PV, stored in primitive columns.
+ *
+ *  Memory use is fixed when created: 17 bytes per sample.  With width>0,
+ *  plus 4 bytes per sample and 8 bytes per stored array element.
+ *  No objects are kept per sample.
+ *  Queries assume that time stamps are increasing.
+ *
+ *  Queries allocate their result without holding the lock taken
+ *  by each update.  Samples overwritten meanwhile are omitted.
+ *
+ *  @see Monitor#setHistory(int, int)
+ */
+public class History {
+	private final int capacity, width;
+	private final long[] nanos;     // POSIX epoch nanoseconds
+	private final double[] values;  // first element
+	private final byte[] sevr;
+	// only when width>0
+	private final int[] counts;
+	private final double[] flat;    // capacity*width elements
+
+	// total # of samples added.  Newest is at (added-1)%capacity
+	private long added;
+	// value of 'added' at the last clear()
+	private long cleared;
+
+	/**
+	 * @param capacity Max. number of samples kept
+	 * @param width Max. number of array elements kept for each sample, or 0 for first element only
+	 */
+	History(int capacity, int width)
+	{
+		if(capacity<1 || width<0)
+			throw new IllegalArgumentException("Invalid history size");
+		this.capacity = capacity;
+		this.width = width;
+		nanos = new long[capacity];
+		values = new double[capacity];
+		sevr = new byte[capacity];
+		counts = width>0 ? new int[capacity] : null;
+		flat = width>0 ? new double[Math.multiplyExact(capacity, width)] : null;
+	}
+
+	public int getCapacity() { return capacity; }
+	public int getWidth() { return width; }
+
+	/** Number of samples held */
+	public synchronized int size() { return (int)Math.min(added-cleared, capacity); }
+
+	/** Number of samples added, including those overwritten */
+	public synchronized long getAdded() { return added-cleared; }
+
+	public synchronized void clear() { cleared = added; }
+
+	static long epochNanos(TimeStamp ts)
+	{
+		return (ts.secPastEpoch()+PValue.EPICS_EPOCH)*1000000000L + ts.nsec();
+	}
+
+	synchronized void add(PValue v)
+	{
+		int i = (int)(added%capacity);
+		nanos[i] = epochNanos(v.time);
+		sevr[i] = (byte)v.severity;
+		values[i] = v.count>0 ? v.getDouble(0) : Double.NaN;
+		if(width>0) {
+			int n = Math.min(v.count, width), base = i*width;
+			if(v.value instanceof double[]) {
+				System.arraycopy(v.value, 0, flat, base, n);
+			} else {
+				for(int j=0; j<n; j++)
+					flat[base+j] = v.getDouble(j);
+			}
+			counts[i] = n;
+		}
+		added++;
+	}
+
+	// POSIX epoch nanoseconds to the same as TimeStamp.asDouble()
+	static double toSeconds(long t)
+	{
+		return (Math.floorDiv(t, 1000000000L)-PValue.EPICS_EPOCH) + Math.floorMod(t, 1000000000L)/1e9;
+	}
+
+	// logical index (0 oldest) of the first sample with time >= t
+	private int lowerBound(long t, int n, long first)
+	{
+		int lo = 0, hi = n;
+		while(lo<hi) {
+			int mid = (lo+hi)>>>1;
+			if(nanos[(int)((first+mid)%capacity)]<t)
+				lo = mid+1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	// logical index of the first sample with time > t (inclusive) or >= t
+	private int lowerBound(double t, boolean inclusive, int n, long first)
+	{
+		int lo = 0, hi = n;
+		while(lo<hi) {
+			int mid = (lo+hi)>>>1;
+			double s = toSeconds(nanos[(int)((first+mid)%capacity)]);
+			if(s<t || (inclusive && s==t))
+				lo = mid+1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/** Samples with t0 <= time <= t1, oldest first.
+	 *  Times are in the same units as PValue.getTime().
+	 */
+	public Samples between(double t0, double t1)
+	{
+		long first;
+		int a, b;
+		synchronized(this) {
+			int n = size();
+			first = added-n;
+			a = lowerBound(t0, false, n, first);
+			b = lowerBound(t1, true, n, first);
+		}
+		return pack(first+a, b-a);
+	}
+
+	/** Samples received in the last 'seconds' before the newest sample */
+	public Samples latest(double seconds)
+	{
+		long newest;
+		synchronized(this) {
+			if(added==cleared)
+				return pack(0, 0);
+			newest = nanos[(int)((added-1)%capacity)];
+		}
+		return betweenNanos(newest-(long)(seconds*1e9), newest);
+	}
+
+	/** Samples with t0 <= time <= t1, as POSIX epoch nanoseconds */
+	public Samples betweenNanos(long t0, long t1)
+	{
+		long first;
+		int a, b;
+		synchronized(this) {
+			int n = size();
+			first = added-n;
+			a = lowerBound(t0, n, first);
+			b = t1==Long.MAX_VALUE ? n : lowerBound(t1+1, n, first);
+		}
+		return pack(first+a, b-a);
+	}
+
+	// copy 'len' samples from absolute index 'from'.
+	// Allocates outside the lock, which add() takes on the CAJ thread.
+	private Samples pack(long from, int len)
+	{
+		len = Math.max(0, len);
+		long[] ns = new long[len];
+		double[] vals = new double[len];
+		byte[] sv = new byte[len];
+		int[] cnt = width>0 ? new int[len] : null;
+		double[] rows = width>0 ? new double[len*width] : null;
+
+		int n = 0;
+		synchronized(this) {
+			// skip samples overwritten, or cleared, since the range was found
+			long lo = Math.max(from, Math.max(cleared, added-capacity)),
+					hi = Math.min(from+len, added);
+			// at most two runs, before and after the end of the ring
+			while(lo+n<hi) {
+				int i = (int)((lo+n)%capacity), run = (int)Math.min(hi-lo-n, capacity-i);
+				System.arraycopy(nanos, i, ns, n, run);
+				System.arraycopy(values, i, vals, n, run);
+				System.arraycopy(sevr, i, sv, n, run);
+				if(width>0) {
+					System.arraycopy(counts, i, cnt, n, run);
+					System.arraycopy(flat, i*width, rows, n*width, run*width);
+				}
+				n += run;
+			}
+		}
+
+		double[] times = new double[n];
+		int[] sevrs = new int[n];
+		double[][] arrays = width>0 ? new double[n][] : null;
+		for(int k=0; k<n; k++) {
+			times[k] = toSeconds(ns[k]);
+			sevrs[k] = sv[k];
+			if(arrays!=null)
+				arrays[k] = Arrays.copyOfRange(rows, k*width, k*width+cnt[k]);
+		}
+		return new Samples(n, n==len ? vals : Arrays.copyOf(vals, n), times, sevrs, arrays, null);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+
+/** PValue holding an int[], eg. from DBR_LONG */
+public class IntPValue extends PValue {
+	private static final long serialVersionUID = 8361770292008415752L;
+
+	private final int[] data;
+
+	IntPValue(Object src, int[] val, int cnt, int sevr, TimeStamp ts) {
+		super(src, val, cnt, sevr, ts);
+		data = val;
+	}
+
+	/** Element 'i' */
+	public int getIntValue(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	/** Copy of the valid elements */
+	public int[] getIntValues()
+	{
+		return Arrays.copyOf(data, count);
+	}
+
+	@Override
+	public double getDouble(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	@Override
+	public double[] getDoubles()
+	{
+		double[] ret = new double[count];
+		for(int i=0; i<count; i++)
+			ret[i] = data[i];
+		return ret;
+	}
+
+	@Override
+	public String getString(int i)
+	{
+		checkIndex(i);
+		return String.valueOf(data[i]);
+	}
+
+	@Override
+	protected void appendElement(StringBuilder b, int i)
+	{
+		b.append(data[i]);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.nio.ByteBuffer;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.TimeStamp;
+
+/** Access to package private internals for the unit tests in yascaif.test.
+ *  Not part of the API.
+ */
+public final class Internals {
+	private Internals() {}
+
+	/** @see EventRing */
+	public static final class Ring<E> {
+		private final EventRing<E> ring;
+
+		public Ring(int capacity) { ring = new EventRing<>(capacity); }
+
+		public int size() { return ring.size(); }
+		public boolean offer(E e) { return ring.offer(e); }
+		public E replaceNewest(E e) { return ring.replaceNewest(e); }
+		public E poll() { return ring.poll(); }
+		public E poll(long nanos) throws InterruptedException { return ring.poll(nanos); }
+	}
+
+	/** @see CA#putChunks(String, DBR[], ByteBuffer, int, int, int) */
+	public static int putChunks(String pvname, DBR[] dbrs, ByteBuffer dest, int nelem, int chunk, int esize)
+	{
+		return CA.putChunks(pvname, dbrs, dest, nelem, chunk, esize);
+	}
+
+	/** @see Monitor#withinDeadband(DBR, DBR, double) */
+	public static boolean withinDeadband(DBR prev, DBR next, double db)
+	{
+		return Monitor.withinDeadband(prev, next, db);
+	}
+
+	/** @see Samples#pack(PValue[], int) */
+	public static Samples pack(PValue[] src, int n)
+	{
+		return Samples.pack(src, n);
+	}
+
+	/** Handle 'evt' as an update received by 'M' */
+	public static void post(Monitor M, PValue evt)
+	{
+		M.notifyEvent(evt);
+	}
+
+	/** Queue 'evt' as an update of PV 'index' of 'G' */
+	public static void post(MonitorGroup G, int index, PValue evt)
+	{
+		G.post(index, evt);
+	}
+
+	/** A History not attached to a Monitor */
+	public static History newHistory(int capacity, int width)
+	{
+		return new History(capacity, width);
+	}
+
+	/** @see History#add(PValue) */
+	public static void add(History H, PValue v)
+	{
+		H.add(v);
+	}
+
+	/** @see History#epochNanos(TimeStamp) */
+	public static long epochNanos(TimeStamp ts)
+	{
+		return History.epochNanos(ts);
+	}
+}
@@ -7,26 +7,26 @@
 package yascaif;
 
 import gov.aps.jca.dbr.DBR;
-import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.dbr.TimeStamp;
-import gov.aps.jca.event.ConnectionEvent;
-import gov.aps.jca.event.ConnectionListener;
-import gov.aps.jca.event.MonitorEvent;
 
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.EventListener;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
-import java.util.concurrent.BlockingDeque;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.cosylab.epics.caj.CAJChannel;
-
 public class Monitor implements AutoCloseable {
 	private static Logger L = Logger.getLogger(Monitor.class.getName());
 
@@ -35,17 +35,94 @@ public class Monitor implements AutoCloseable {
 		void Monitor(PValue data);
 	}
 
-	private final CAJChannel chan;
-	private MListen delegate;
-	// last value received
-	private DBR last_value;
+	/** Event mask bits.  Select which server side changes cause an update.
+	 *  @see #setMask(int)
+	 */
+	public static final int VALUE = gov.aps.jca.Monitor.VALUE,
+			LOG = gov.aps.jca.Monitor.LOG,
+			ALARM = gov.aps.jca.Monitor.ALARM,
+			PROPERTY = gov.aps.jca.Monitor.PROPERTY;
+	/** Default event mask */
+	public static final int DEFAULT_MASK = VALUE|ALARM;
+
+	/** Snapshot of delivery statistics for one MonitorListener */
+	public static class ListenerStats {
+		private final MonitorListener listener;
+		private final int depth, maxDepth;
+		private final long delivered, dropped;
+		private final double meanTime, maxTime;
+
+		ListenerStats(Dispatch d)
+		{
+			listener = d.listener;
+			depth = d.queue==null ? 0 : d.queue.size();
+			maxDepth = d.maxDepth;
+			delivered = d.delivered.sum();
+			dropped = d.dropped.sum();
+			meanTime = delivered==0 ? 0.0 : d.totalNanos.sum()*1e-9/delivered;
+			maxTime = d.maxNanos.get()*1e-9;
+		}
+
+		public MonitorListener getListener() { return listener; }
+		/** Number of events waiting for this listener */
+		public int getQueueDepth() { return depth; }
+		/** Largest observed getQueueDepth() */
+		public int getMaxQueueDepth() { return maxDepth; }
+		/** Number of callbacks completed */
+		public long getDelivered() { return delivered; }
+		/** Number of events discarded because this listener's queue was full */
+		public long getDropped() { return dropped; }
+		/** Mean callback duration in seconds */
+		public double getMeanCallbackTime() { return meanTime; }
+		/** Longest callback duration in seconds */
+		public double getMaxCallbackTime() { return maxTime; }
+
+		@Override
+		public String toString() {
+			return String.format("%s depth=%d/%d delivered=%d dropped=%d mean=%.6fs max=%.6fs",
+					listener, depth, maxDepth, delivered, dropped, meanTime, maxTime);
+		}
+	}
+
+	private final CA owner;
+	private final String name;
+	// shared with other handles.  null once closed
+	private volatile Subscription sub;
+	// last value delivered
+	private volatile DBR last_value;
 	private TimeStamp last_time;
-	private final BlockingDeque<PValue> queue = new LinkedBlockingDeque<>();
-	private int capacity = 1;
+
+	// rate limit and deadband, applied before a PValue is created
+	private volatile long minPeriod = 0; // nanoseconds, 0 for no limit
+	private volatile double deadband = 0.0;
+	private volatile long nextAllowed = System.nanoTime();
+	// latest update held back by the rate limit
+	private final AtomicReference<DBR> pending = new AtomicReference<>();
+	private final LongAdder suppressed = new LongAdder();
+	// replaced (not resized) by setCapacity()
+	private volatile EventRing<PValue> queue = new EventRing<>(1);
+	// when not null, queued values are copied into pooled buffers
+	private volatile ValuePool pool;
+	private volatile OverflowPolicy overflow = OverflowPolicy.DROP_OLDEST;
+	private volatile long blockTimeout = 100000000; // nanoseconds
+	// recent updates, kept regardless of the queue.  null when disabled
+	private volatile History history;
+	// set by Recorder.add()
+	private final AtomicReference<Consumer<PValue>> recorder = new AtomicReference<>();
+	private final LongAdder enqueued = new LongAdder(),
+			dropped = new LongAdder();
+	// only updated by the producer, approximate under concurrent updates
+	private volatile int maxDepth;
 	private double timeout = 5.0;
 	private int mcount;
+	private volatile int mask;
+	private final MonitorGroup group;
+	private final int groupIndex;
 
-	private final List<MonitorListener> listeners  = new ArrayList<>();
+	// snapshot iteration w/o copying per event
+	private final List<Dispatch> listeners  = new CopyOnWriteArrayList<>();
+	private volatile Executor dispatcher;
+	private volatile int listenerCapacity = 1024;
 
 	private static final Map<Monitor, Integer> _allinst = new WeakHashMap<>();
 
@@ -53,54 +130,229 @@ public class Monitor implements AutoCloseable {
 		return _allinst.size();
 	}
 
-	Monitor(CAJChannel ch, int elements)
+	Monitor(CA o, String name, int elements, int mask)
 	{
-		chan = ch;
-		mcount = elements;
-		try {
-			// delegate has only a WeakReference to us
-			delegate = new MListen(this);
+		this(o, name, elements, mask, null, null, 0);
+	}
 
-			chan.addConnectionListenerAndFireIfConnected(delegate);
-		} catch (Exception e) {
-			throw new RuntimeException("Failed to listen for "+chan.getName(), e);
-		}
+	/* When batch!=null, a new subscription flushes through it.
+	 * When group!=null, updates are queued by the group instead of this Monitor.
+	 */
+	Monitor(CA o, String name, int elements, int mask,
+			CA.FlushBatch batch, MonitorGroup group, int groupIndex)
+	{
+		checkMask(mask);
+		this.group = group;
+		this.groupIndex = groupIndex;
+		owner = o;
+		this.name = name;
+		mcount = elements;
+		this.mask = mask;
+		dispatcher = o.dispatcher;
+		Subscription s = o.subscribe(name, elements, mask, batch);
+		sub = s;
+		s.attach(this);
 		_allinst.put(this, 1);
 	}
 
-	/** Cancel subscription */
+	/** Cancel subscription.
+	 *  The underlying CA subscription is cleared when no other Monitor shares it.
+	 *  Any update held by setMaxRate(), then a disconnect event, are
+	 *  queued and passed to listeners.  With a dispatcher, these callbacks
+	 *  may happen after close() returns.
+	 */
 	@Override
 	public void close() {
 		L.info("Closing Monitor");
-		MListen d;
+		Subscription s;
 		synchronized (this) {
-			d = delegate;
-			delegate = null;
-			if(d!=null) {
-				listeners.clear();
-			}
+			s = sub;
+			sub = null;
 		}
-		if(d!=null) {
+		if(s!=null) {
 			L.fine("Remove Monitor listener");
+			s.detach(this);
 			try {
-				chan.removeConnectionListener(d);
-				d.clear();
-			} catch (Exception e) {
-				throw new RuntimeException("Failed to unlisten for "+chan.getName(), e);
+				disconnected(s);
+			} finally {
+				// queued callbacks are still delivered
+				synchronized (this) {
+					listeners.clear();
+				}
+				owner.unsubscribe(s);
 			}
 		}
 	}
 
-	public String getName() { return chan.getName(); }
+	public String getName() { return name; }
 
 	/** Set max. number of queued events */
 	public void setCapacity(int c)
 	{
 		if(c<1) c=1;
-		capacity = c;
+		synchronized (this) {
+			EventRing<PValue> prev = queue;
+			if(prev.capacity()==c)
+				return;
+			EventRing<PValue> next = new EventRing<>(c);
+			queue = next;
+			// move queued events.  Repeated after retire() to catch
+			// an event added to the old ring while being replaced.
+			long n = prev.transferTo(next, PValue::release);
+			prev.retire();
+			n += prev.transferTo(next, PValue::release);
+			dropped.add(n);
+		}
+	}
+
+	public int getCapacity() { return queue.capacity(); }
+
+	/** Number of events discarded because the queue was full */
+	public long getDropped() { return dropped.sum(); }
+	/** Number of events placed in the queue */
+	public long getEnqueued() { return enqueued.sum(); }
+	/** Largest number of queued events seen */
+	public int getMaxDepth() { return maxDepth; }
+	/** Number of queued events */
+	public int getQueued() { return queue.size(); }
+
+	/** Copy queued updates into a pool of 'n' re-used value buffers.
+	 *  0 (the default) queues the value arrays allocated by CAJ.
+	 *
+	 *  Values taken with waitFor() must be returned with PValue.release()
+	 *  once no longer needed, or the pool empties and buffers are allocated.
+	 *  Values given to listeners, or by drain(), are not pooled.
+	 *  The source of a pooled value is this Monitor, instead of the DBR.
+	 *  Has no effect on a Monitor of a MonitorGroup.
+	 *  n should be at least the queue capacity, plus the number of values
+	 *  held by the consumer.
+	 */
+	public void setPooling(int n)
+	{
+		pool = n>0 ? new ValuePool(n) : null;
+	}
+
+	public int getPooling()
+	{
+		ValuePool p = pool;
+		return p==null ? 0 : p.size();
 	}
 
-	public int getCapacity() { return capacity; }
+	/** Number of buffers allocated by the pool.
+	 *  Stops increasing once the pool holds enough buffers,
+	 *  unless values are not release()d.
+	 */
+	public long getPoolAllocated()
+	{
+		ValuePool p = pool;
+		return p==null ? 0 : p.allocated.sum();
+	}
+
+	/** Keep the last 'capacity' updates in a History, with up to 'width'
+	 *  elements of each (0 for the first element only).
+	 *  capacity 0 disables.  Replaces any previous History.
+	 *  @return the new History, or null
+	 */
+	public History setHistory(int capacity, int width)
+	{
+		History h = capacity>0 ? new History(capacity, width) : null;
+		history = h;
+		return h;
+	}
+
+	/** Recent updates, or null if not enabled by setHistory() */
+	public History getHistory() { return history; }
+
+	/* Replace the Recorder callback if it is currently 'expect'.
+	 * expect==null always replaces.
+	 */
+	void setRecorder(Consumer<PValue> expect, Consumer<PValue> update)
+	{
+		if(expect==null)
+			recorder.set(update);
+		else
+			recorder.compareAndSet(expect, update);
+	}
+
+	/** Select what to do with an update when the queue is full */
+	public void setOverflowPolicy(OverflowPolicy p)
+	{
+		if(p==null)
+			throw new IllegalArgumentException("null policy");
+		overflow = p;
+	}
+
+	public OverflowPolicy getOverflowPolicy() { return overflow; }
+
+	/** Max. seconds to wait for space with BLOCK_PRODUCER */
+	public void setBlockTimeout(double t)
+	{
+		blockTimeout = (long)(Math.max(0.0, t)*1e9);
+	}
+
+	public double getBlockTimeout() { return blockTimeout*1e-9; }
+
+	private static void checkMask(int m)
+	{
+		if(m==0 || (m&~(VALUE|LOG|ALARM|PROPERTY))!=0)
+			throw new IllegalArgumentException("Invalid event mask "+m);
+	}
+
+	/** Change the event mask.  Some combination of VALUE, LOG, ALARM, and PROPERTY.
+	 *  Moves this Monitor to a subscription with the new mask.
+	 */
+	public void setMask(int m)
+	{
+		checkMask(m);
+		synchronized (this) {
+			Subscription prev = sub;
+			if(m==mask || prev==null) {
+				mask = m;
+				return;
+			}
+			Subscription next = owner.subscribe(name, mcount, m, null);
+			mask = m;
+			prev.detach(this);
+			sub = next;
+			next.attach(this);
+			owner.unsubscribe(prev);
+		}
+	}
+
+	public int getMask() { return mask; }
+
+	/** Deliver at most 'hz' updates per second.
+	 *  Within each period only the most recent update is delivered,
+	 *  at the end of the period.  Intermediate updates are discarded.
+	 *  hz<=0 removes the limit (the default).
+	 *  A held update is delivered through the dispatcher executor, if set,
+	 *  otherwise from a shared "yascaif rate limit" thread.
+	 */
+	public void setMaxRate(double hz)
+	{
+		minPeriod = hz>0.0 ? (long)(1e9/hz) : 0;
+	}
+
+	public double getMaxRate()
+	{
+		long p = minPeriod;
+		return p==0 ? 0.0 : 1e9/p;
+	}
+
+	/** Discard numeric updates where no element has changed by more
+	 *  than 'db' since the last delivered update.
+	 *  Changes in alarm severity, or array length, are always delivered.
+	 *  0 (the default) delivers all updates.
+	 */
+	public void setDeadband(double db)
+	{
+		deadband = Math.max(0.0, db);
+	}
+
+	public double getDeadband() { return deadband; }
+
+	/** Number of updates discarded by setMaxRate() or setDeadband() */
+	public long getSuppressed() { return suppressed.sum(); }
 
 	/** timeout<0 disables timeout
 	 *  timeout==0 polls w/o blocking
@@ -116,7 +368,7 @@ public class Monitor implements AutoCloseable {
 	/** Remove all queued events */
 	public void clear()
 	{
-		queue.clear();
+		queue.clear(PValue::release);
 	}
 
 	/** wait for monitor update w/ default timeout */
@@ -128,12 +380,52 @@ public class Monitor implements AutoCloseable {
 	/** wait for monitor update w/ specified timeout */
 	public PValue waitFor(double timeout) throws InterruptedException
 	{
-		if(timeout<0.0)
-			return queue.takeFirst(); // block forever
-		else if(timeout==0.0)
-			return queue.pollFirst(); // poll, return null if empty
-		else
-			return queue.pollFirst((long)(timeout*1000.0), TimeUnit.MILLISECONDS);
+		final long deadline = System.nanoTime()+(long)(timeout*1e9);
+		while(true) {
+			EventRing<PValue> q = queue;
+			long nanos;
+			if(timeout<0.0)
+				nanos = -1; // block forever
+			else if(timeout==0.0)
+				nanos = 0; // poll, return null if empty
+			else
+				nanos = Math.max(0, deadline-System.nanoTime());
+			PValue ret = q.poll(nanos);
+			if(ret!=null || q==queue)
+				return ret;
+			// capacity changed while waiting, wait on new queue
+		}
+	}
+
+	/** Remove up to 'max' queued updates without waiting, packed into arrays.
+	 *  max<=0 removes all queued updates.
+	 */
+	public Samples drain(int max) throws InterruptedException
+	{
+		return drain(max, 0.0);
+	}
+
+	/** Wait for at least one update, as waitFor(timeout), then
+	 *  remove up to 'max' queued updates packed into arrays.
+	 *  Returns zero updates on timeout.
+	 */
+	public Samples drain(int max, double timeout) throws InterruptedException
+	{
+		PValue first = waitFor(timeout);
+		if(first==null)
+			return Samples.pack(new PValue[0], 0);
+		EventRing<PValue> q = queue;
+		int n = 1+q.size();
+		if(max>0 && max<n) n = max;
+		PValue[] buf = new PValue[n];
+		buf[0] = first;
+		int i = 1;
+		while(i<n && (buf[i]=q.poll())!=null)
+			i++;
+		Samples ret = Samples.pack(buf, i);
+		for(int j=0; j<i; j++)
+			buf[j].release();
+		return ret;
 	}
 
 	@Override
@@ -142,107 +434,348 @@ public class Monitor implements AutoCloseable {
 		close();
 	};
 
+	/** Deliver listener callbacks through this executor.
+	 *  Each listener sees events in order, with at most one callback
+	 *  in progress at a time.
+	 *  null calls listeners from the CAJ dispatcher thread,
+	 *  where a slow listener delays all channels of this context,
+	 *  or, for updates held by setMaxRate(), from a shared thread.
+	 *  Defaults to CA.Config.dispatcher().
+	 *  Applies to subsequently added listeners.
+	 */
+	public void setDispatcher(Executor exec) { dispatcher = exec; }
+
+	public Executor getDispatcher() { return dispatcher; }
+
+	/** Max. number of events queued for each listener when a dispatcher is set.
+	 *  When full, the oldest event is discarded.
+	 *  Applies to subsequently added listeners.
+	 */
+	public void setListenerCapacity(int c)
+	{
+		listenerCapacity = Math.max(1, c);
+	}
+
+	public int getListenerCapacity() { return listenerCapacity; }
+
 	public synchronized void addMonitorListener(MonitorListener l) {
-		listeners.add(l);
+		listeners.add(new Dispatch(l, dispatcher, listenerCapacity));
 	}
 
 	public synchronized void removeMonitorListener(MonitorListener l) {
-		listeners.remove(l);
+		for(Dispatch d : listeners) {
+			if(d.listener==l) {
+				d.closed = true;
+				listeners.remove(d);
+				break;
+			}
+		}
 	}
 
+	/** Delivery statistics for each current listener */
+	public List<ListenerStats> getListenerStats()
+	{
+		List<ListenerStats> ret = new ArrayList<>(listeners.size());
+		for(Dispatch d : listeners)
+			ret.add(new ListenerStats(d));
+		return ret;
+	}
+
+
 
+	void notifyEvent(PValue evt) {
+		History h = history;
+		if(h!=null)
+			h.add(evt);
 
-	private void notifyEvent(PValue evt) {
-		while(queue.size()>capacity-1) {
-			queue.removeLast();
+		Consumer<PValue> r = recorder.get();
+		if(r!=null)
+			r.accept(evt);
+
+		MonitorGroup g = group;
+		if(g!=null)
+			g.post(groupIndex, evt);
+		else
+			enqueue(evt);
+
+		for(Dispatch l : listeners) {
+			l.post(evt);
 		}
-		// always place last received update
-		queue.addLast(evt);
+	}
 
-		final List<MonitorListener> temp;
-		synchronized (this) {
-			temp  = new ArrayList<>(listeners);
+	private void enqueue(PValue evt)
+	{
+		EventRing<PValue> q = queue;
+		ValuePool p = pool;
+		if(p!=null) {
+			// don't copy an update which would be discarded
+			if(overflow==OverflowPolicy.DROP_NEWEST && q.size()>=q.capacity()) {
+				dropped.increment();
+				return;
+			}
+			evt = p.copyOf(evt, this);
 		}
-		for(MonitorListener l : temp) {
-			try {
-				l.Monitor(evt);
-			} catch(Exception e) {
-				L.log(Level.WARNING, "Unhandled error from Monitor callback", e);
+		if(!q.offer(evt)) {
+			switch(overflow) {
+			case DROP_NEWEST:
+				dropped.increment();
+				evt.release();
+				return;
+			case KEEP_LATEST:
+				while(!q.offer(evt)) {
+					PValue prev = q.replaceNewest(evt);
+					if(prev!=null) {
+						dropped.increment();
+						prev.release();
+						break;
+					}
+				}
+				break;
+			case BLOCK_PRODUCER:
+				// on timeout, discard oldest
+				if(!waitForSpace(q, evt))
+					dropped.add(q.put(evt, PValue::release));
+				break;
+			case DROP_OLDEST:
+				dropped.add(q.put(evt, PValue::release));
+				break;
 			}
 		}
+		enqueued.increment();
+		int depth = q.size();
+		if(depth>maxDepth)
+			maxDepth = depth;
 	}
 
-	private static class MListen implements ConnectionListener,
-									 gov.aps.jca.event.MonitorListener {
-		gov.aps.jca.Monitor mon;
-		WeakReference<Monitor> owner;
+	// Poll for space with back off, up to blockTimeout.  Returns true if queued.
+	private boolean waitForSpace(EventRing<PValue> q, PValue evt)
+	{
+		final long deadline = System.nanoTime()+blockTimeout;
+		long sleep = 10000;
+		do {
+			LockSupport.parkNanos(sleep);
+			if(q.offer(evt))
+				return true;
+			sleep = Math.min(sleep*2, 1000000);
+		} while(deadline-System.nanoTime()>0 && queue==q);
+		return false;
+	}
 
-		private MListen(Monitor o) {
-			this.owner = new WeakReference<Monitor>(o);
+	/* Apply deadband and rate limit.
+	 * Returns true if dbr should be delivered now.
+	 * Called from the CAJ dispatcher thread.
+	 */
+	private boolean admit(DBR dbr)
+	{
+		double db = deadband;
+		if(db>0.0 && withinDeadband(last_value, dbr, db)) {
+			suppressed.increment();
+			return false;
 		}
+		long period = minPeriod;
+		if(period==0)
+			return true;
+
+		long now = System.nanoTime();
+		if(now-nextAllowed>=0 && pending.get()==null) {
+			nextAllowed = now+period;
+			return true;
+		}
+		// hold until end of current period
+		if(pending.getAndSet(dbr)!=null) {
+			suppressed.increment();
+		} else {
+			// the timer thread only hands off, so listeners can't delay CA timeouts
+			CA.timers.schedule(this::dispatchPending,
+					Math.max(0, nextAllowed-now), TimeUnit.NANOSECONDS);
+		}
+		return false;
+	}
 
-		void clear() {
-			Monitor o = owner.get();
-			if(o==null) return;
-			gov.aps.jca.Monitor m;
-			synchronized (this) {
-				m = mon;
-				mon = null;
-			}
-			if(m!=null) {
-				try {
-					m.clear();
-					if(o.last_value!=null)
-						o.notifyEvent(PValue.makeDisconnect(this, o.last_value, o.last_time));
-				} catch (Exception e) {
-					Monitor.L.log(Level.WARNING, "Failed to clear subscription for "+o.chan.getName(), e);
-				}
+	// Called from the CA timer thread
+	private void dispatchPending()
+	{
+		Executor exec = dispatcher;
+		if(exec!=null) {
+			try {
+				exec.execute(this::emitPending);
+				return;
+			} catch(RejectedExecutionException e) {
+				L.log(Level.WARNING, "Monitor dispatcher rejected held update", e);
 			}
 		}
+		CA.heldUpdates.execute(this::emitPending);
+	}
 
-		@Override
-		public void connectionChanged(ConnectionEvent ev) {
-			Monitor o = owner.get();
-			if(o==null) return;
-			Monitor.L.fine("Connection state changed "+o.chan.getName()+" "+Boolean.toString(ev.isConnected()));
-			if(ev.isConnected()) {
-				DBRType dt = CA.promotemap.get(o.chan.getFieldType());
-				if(dt==null) {
-					Monitor.L.warning("Channel "+o.chan.getName()+" has unsupported DBR ");
-					if(o.last_value!=null)
-						o.notifyEvent(PValue.makeDisconnect(this, o.last_value, o.last_time));
-				}
+	// Deliver an update held by admit()
+	private void emitPending()
+	{
+		nextAllowed = System.nanoTime()+minPeriod;
+		DBR dbr = pending.getAndSet(null);
+		Subscription s = sub;
+		if(dbr!=null && s!=null)
+			emit(s.valueOf(dbr), dbr);
+	}
 
-				try {
-					Monitor.L.fine("Subscribe to "+o.chan.getName());
-					mon = o.chan.addMonitor(dt, o.mcount,
-							gov.aps.jca.Monitor.VALUE|gov.aps.jca.Monitor.ALARM,
-							this);
-					o.chan.getContext().flushIO();
-				} catch (Exception e) {
-					Monitor.L.log(Level.WARNING, "Failed to create subscription for "+o.chan.getName(), e);
-				}
-			} else if(mon!=null) {
-				clear();
+	private void emit(PValue pev, DBR dbr)
+	{
+		last_value = dbr;
+		last_time = pev.time;
+		notifyEvent(pev);
+	}
+
+	/* Callbacks from Subscription */
+
+	void update(Subscription s, DBR dbr)
+	{
+		try {
+			if(admit(dbr))
+				emit(s.valueOf(dbr), dbr);
+		} catch (Exception e) {
+			L.log(Level.WARNING, "Failed to translate/notify for "+name, e);
+		}
+	}
+
+	// latest value of a shared subscription when attached
+	void replay(PValue pev)
+	{
+		emit(pev, (DBR)pev.getSource());
+	}
+
+	void disconnected(Subscription s)
+	{
+		// deliver any update held by the rate limit before disconnect
+		DBR held = pending.getAndSet(null);
+		if(held!=null)
+			emit(s.valueOf(held), held);
+		if(last_value!=null)
+			notifyEvent(PValue.makeDisconnect(this, last_value, last_time));
+	}
+
+	// true if no element of next differs from prev by more than db.
+	// Strings and enums are always delivered.
+	static boolean withinDeadband(DBR prev, DBR next, double db)
+	{
+		if(prev==null || PValue.severityOf(prev)!=PValue.severityOf(next))
+			return false;
+		if(next.getType().isENUM())
+			return false; // a state change, though the value is a short[]
+		Object a = prev.getValue(), b = next.getValue();
+		if(a instanceof double[] && b instanceof double[]) {
+			double[] x = (double[])a, y = (double[])b;
+			if(x.length!=y.length) return false;
+			for(int i=0; i<x.length; i++)
+				if(!(Math.abs(x[i]-y[i])<=db)) return false; // NaN is a change
+			return true;
+		} else if(a instanceof float[] && b instanceof float[]) {
+			float[] x = (float[])a, y = (float[])b;
+			if(x.length!=y.length) return false;
+			for(int i=0; i<x.length; i++)
+				if(!(Math.abs(x[i]-y[i])<=db)) return false;
+			return true;
+		} else if(a instanceof int[] && b instanceof int[]) {
+			int[] x = (int[])a, y = (int[])b;
+			if(x.length!=y.length) return false;
+			for(int i=0; i<x.length; i++)
+				if(Math.abs((double)x[i]-y[i])>db) return false;
+			return true;
+		} else if(a instanceof short[] && b instanceof short[]) {
+			short[] x = (short[])a, y = (short[])b;
+			if(x.length!=y.length) return false;
+			for(int i=0; i<x.length; i++)
+				if(Math.abs(x[i]-y[i])>db) return false;
+			return true;
+		} else if(a instanceof byte[] && b instanceof byte[]) {
+			byte[] x = (byte[])a, y = (byte[])b;
+			if(x.length!=y.length) return false;
+			for(int i=0; i<x.length; i++)
+				if(Math.abs(x[i]-y[i])>db) return false;
+			return true;
+		}
+		return false; // strings
+	}
+
+	/* Delivery to one listener.  Either direct, or through a bounded
+	 * queue drained by at most one executor task at a time.
+	 */
+	static final class Dispatch implements Runnable {
+		// max. callbacks per task before yielding the executor thread
+		private static final int BATCH = 64;
+
+		final MonitorListener listener;
+		final Executor exec;
+		final EventRing<PValue> queue;
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		volatile boolean closed = false;
+
+		final LongAdder delivered = new LongAdder(),
+				dropped = new LongAdder(),
+				totalNanos = new LongAdder();
+		final AtomicLong maxNanos = new AtomicLong();
+		// only updated from post(), approximate under concurrent posts
+		volatile int maxDepth;
+
+		Dispatch(MonitorListener l, Executor exec, int capacity)
+		{
+			listener = l;
+			this.exec = exec;
+			queue = exec==null ? null : new EventRing<PValue>(capacity);
+		}
+
+		void post(PValue evt)
+		{
+			if(queue==null) {
+				deliver(evt);
+				return;
 			}
+			dropped.add(queue.put(evt));
+			int depth = queue.size();
+			if(depth>maxDepth)
+				maxDepth = depth;
+			schedule();
+		}
 
+		private void schedule()
+		{
+			if(!scheduled.compareAndSet(false, true))
+				return; // already pending or running
+			try {
+				exec.execute(this);
+			} catch(RejectedExecutionException e) {
+				scheduled.set(false);
+				L.log(Level.WARNING, "Monitor dispatcher rejected callback", e);
+			}
 		}
 
 		@Override
-		public void monitorChanged(MonitorEvent ev) {
-			Monitor o = owner.get();
-			if(o==null) return;
-			Monitor.L.fine("Monitor event for "+o.chan.getName());
+		public void run()
+		{
 			try {
-				PValue pev = new PValue(this, ev.getDBR());
-				o.last_value = ev.getDBR();
-				o.last_time = pev.time;
-				o.notifyEvent(pev);
-			} catch (Exception e) {
-				Monitor.L.log(Level.WARNING, "Failed to translate/notify for "+o.chan.getName(), e);
+				PValue evt;
+				for(int n=0; n<BATCH && !closed && (evt=queue.poll())!=null; n++)
+					deliver(evt);
+			} finally {
+				scheduled.set(false);
 			}
+			// re-check for events posted after the last poll()
+			if(!closed && queue.size()>0)
+				schedule();
 		}
 
+		private void deliver(PValue evt)
+		{
+			long start = System.nanoTime();
+			try {
+				listener.Monitor(evt);
+			} catch(Exception e) {
+				L.log(Level.WARNING, "Unhandled error from Monitor callback", e);
+			}
+			long dur = System.nanoTime()-start;
+			delivered.increment();
+			totalNanos.add(dur);
+			long prev;
+			while(dur>(prev=maxNanos.get()) && !maxNanos.compareAndSet(prev, dur)) {}
+		}
 	}
 
 }
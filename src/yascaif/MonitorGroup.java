@@ -0,0 +1,182 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Subscriptions to many PVs sharing a single FIFO.
+ *
+ *  Each queued Event carries the index of the PV in the list of names
+ *  given to CA.monitorGroup().
+ */
+public class MonitorGroup implements AutoCloseable {
+	private static Logger L = Logger.getLogger(MonitorGroup.class.getName());
+
+	/** An update from one PV of a group */
+	public static class Event {
+		private final int index;
+		private final PValue value;
+
+		Event(int index, PValue value)
+		{
+			this.index = index;
+			this.value = value;
+		}
+
+		/** Index of the PV name (zero based) */
+		public int getIndex() { return index; }
+		public PValue getValue() { return value; }
+
+		@Override
+		public String toString() {
+			return "#"+index+" "+value;
+		}
+	}
+
+	private final String[] names;
+	private final Monitor[] monitors;
+	// replaced (not resized) by setCapacity()
+	private volatile EventRing<Event> queue;
+	private final LongAdder dropped = new LongAdder();
+	private double timeout = 5.0;
+
+	MonitorGroup(CA owner, String[] names, int count, int mask, CA.FlushBatch batch)
+	{
+		this.names = names.clone();
+		monitors = new Monitor[names.length];
+		queue = new EventRing<>(Math.max(1, names.length));
+		try {
+			for(int i=0; i<names.length; i++)
+				monitors[i] = new Monitor(owner, names[i], count, mask, batch, this, i);
+		} catch(RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/** Cancel all subscriptions */
+	@Override
+	public void close()
+	{
+		for(Monitor M : monitors) {
+			if(M==null)
+				continue;
+			try {
+				M.close();
+			} catch(RuntimeException e) {
+				L.log(Level.WARNING, "Error closing subscription for "+M.getName(), e);
+			}
+		}
+	}
+
+	/** Number of PVs */
+	public int size() { return names.length; }
+
+	public String getName(int index) { return names[index]; }
+
+	/** The subscription for one PV.  eg. to set a rate limit or add a listener.
+	 *  Its updates are queued here, not by the Monitor.
+	 */
+	public Monitor getMonitor(int index) { return monitors[index]; }
+
+	void post(int index, PValue evt)
+	{
+		dropped.add(queue.put(new Event(index, evt)));
+	}
+
+	/** Set max. number of queued events for all PVs.  Defaults to the number of PVs. */
+	public synchronized void setCapacity(int c)
+	{
+		if(c<1) c=1;
+		EventRing<Event> prev = queue;
+		if(prev.capacity()==c)
+			return;
+		EventRing<Event> next = new EventRing<>(c);
+		queue = next;
+		long n = prev.transferTo(next, null);
+		prev.retire();
+		n += prev.transferTo(next, null);
+		dropped.add(n);
+	}
+
+	public int getCapacity() { return queue.capacity(); }
+
+	/** Number of events discarded because the queue was full */
+	public long getDropped() { return dropped.sum(); }
+
+	/** Number of queued events */
+	public int getQueued() { return queue.size(); }
+
+	/** timeout<0 disables timeout
+	 *  timeout==0 polls w/o blocking
+	 *  timeout>0 blocks for up to 'timeout' seconds.
+	 */
+	public void setTimeout(double timeout)
+	{
+		this.timeout = timeout;
+	}
+
+	public double getTimeout() { return timeout; }
+
+	/** Remove all queued events */
+	public void clear()
+	{
+		queue.clear();
+	}
+
+	/** wait for an update from any PV w/ default timeout */
+	public Event waitForAny() throws InterruptedException
+	{
+		return waitForAny(timeout);
+	}
+
+	/** wait for an update from any PV w/ specified timeout */
+	public Event waitForAny(double timeout) throws InterruptedException
+	{
+		final long deadline = System.nanoTime()+(long)(timeout*1e9);
+		while(true) {
+			EventRing<Event> q = queue;
+			long nanos;
+			if(timeout<0.0)
+				nanos = -1;
+			else if(timeout==0.0)
+				nanos = 0;
+			else
+				nanos = Math.max(0, deadline-System.nanoTime());
+			Event ret = q.poll(nanos);
+			if(ret!=null || q==queue)
+				return ret;
+			// capacity changed while waiting, wait on new queue
+		}
+	}
+
+	/** Move all queued events into 'dest' without waiting.
+	 * @return number of events moved
+	 */
+	public int drainTo(Collection<? super Event> dest)
+	{
+		return drainTo(dest, Integer.MAX_VALUE);
+	}
+
+	/** Move up to 'max' queued events into 'dest' without waiting.
+	 * @return number of events moved
+	 */
+	public int drainTo(Collection<? super Event> dest, int max)
+	{
+		EventRing<Event> q = queue;
+		int n = 0;
+		Event e;
+		while(n<max && (e=q.poll())!=null) {
+			dest.add(e);
+			n++;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,23 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+/** What a Monitor does with an update when its queue is full.
+ *  @see Monitor#setOverflowPolicy(OverflowPolicy)
+ */
+public enum OverflowPolicy {
+	/** Discard the oldest queued update.  The queue is a sliding window. (default) */
+	DROP_OLDEST,
+	/** Discard the new update.  The queue keeps the oldest updates. */
+	DROP_NEWEST,
+	/** Replace the newest queued update.  The queue keeps the oldest updates, and the latest. */
+	KEEP_LATEST,
+	/** Wait up to Monitor.getBlockTimeout() for space, then DROP_OLDEST.
+	 *  Delays updates of other PVs while waiting.
+	 */
+	BLOCK_PRODUCER,
+}
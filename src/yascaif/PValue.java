@@ -8,6 +8,7 @@ package yascaif;
 
 import java.lang.reflect.Array;
 import java.util.EventObject;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import gov.aps.jca.dbr.DBR;
 import gov.aps.jca.dbr.STS;
@@ -15,53 +16,165 @@ import gov.aps.jca.dbr.Severity;
 import gov.aps.jca.dbr.TIME;
 import gov.aps.jca.dbr.TimeStamp;
 
-/** Immutable holder for value, time stamp, and alarm severity
+/** Holder for value, time stamp, and alarm severity
+ *
+ *  Values read or monitored by this package are one of the subclasses
+ *  DoublePValue, FloatPValue, IntPValue, ShortPValue, BytePValue, or StringPValue,
+ *  which access elements without reflection or boxing.
+ *
+ *  The fields are not changed, except that a value taken from a Monitor
+ *  with setPooling() enabled shares its value array with the pool.
+ *  After release() the array is re-used for a later update, so neither
+ *  the PValue nor its value array may be used.
  */
 public class PValue extends EventObject {
 	private static final long serialVersionUID = -6262861871811251881L;
+	// EPICS epoch in POSIX seconds
+	static final long EPICS_EPOCH = 631152000L;
 
 	final Object value;
+	final int count;
 	final int severity;
 	final TimeStamp time;
+	// when 'value' is a pooled buffer, cleared by release()
+	transient volatile ValuePool pool;
+	private static final AtomicReferenceFieldUpdater<PValue, ValuePool> poolUpdater =
+			AtomicReferenceFieldUpdater.newUpdater(PValue.class, ValuePool.class, "pool");
 
 	public PValue(Object src, Object val, int sevr, TimeStamp ts) {
+		this(src, val, val==null ? 0 : Array.getLength(val), sevr, ts);
+	}
+
+	/* Only the first 'cnt' elements of 'val' are valid.
+	 * eg. when 'val' is a re-used buffer
+	 */
+	PValue(Object src, Object val, int cnt, int sevr, TimeStamp ts) {
 		super(src);
 		value = val;
+		count = cnt;
 		severity = sevr;
 		time = ts;
 	}
-	
+
 	public PValue(Object src, DBR dbr)
 	{
 		super(src);
-		if(dbr==null) {
-			value = null;
-			time = new TimeStamp(); // now
-			severity = 3;
-		} else if(dbr.isTIME()) {
-			TIME tdbr = (TIME)dbr;
-			value = dbr.getValue();
-			time = tdbr.getTimeStamp();
-			severity = tdbr.getSeverity().getValue();
-		} else if(dbr.isSTS()) {
-			STS tdbr = (STS)dbr;
-			value = dbr.getValue();
-			time = new TimeStamp(); // now
-			severity = tdbr.getSeverity().getValue();
-		} else {
-			value = dbr.getValue();
-			time = new TimeStamp(); // now
-			severity = 0; // assume valid
-		}
+		value = dbr==null ? null : dbr.getValue();
+		count = value==null ? 0 : Array.getLength(value);
+		time = timeOf(dbr);
+		severity = severityOf(dbr);
 		if(value!=null && !value.getClass().isArray())
 			throw new RuntimeException("PValue must be built around null or array, not "+value.getClass().getName());
 	}
-	
+
+	/** Wrap 'val' with the PValue subclass for its array type */
+	public static PValue of(Object src, Object val, int sevr, TimeStamp ts)
+	{
+		return of(src, val, val==null ? 0 : Array.getLength(val), sevr, ts);
+	}
+
+	static PValue of(Object src, Object val, int cnt, int sevr, TimeStamp ts)
+	{
+		if(val instanceof double[])
+			return new DoublePValue(src, (double[])val, cnt, sevr, ts);
+		else if(val instanceof float[])
+			return new FloatPValue(src, (float[])val, cnt, sevr, ts);
+		else if(val instanceof int[])
+			return new IntPValue(src, (int[])val, cnt, sevr, ts);
+		else if(val instanceof short[])
+			return new ShortPValue(src, (short[])val, cnt, sevr, ts);
+		else if(val instanceof byte[])
+			return new BytePValue(src, (byte[])val, cnt, sevr, ts);
+		else if(val instanceof String[])
+			return new StringPValue(src, (String[])val, cnt, sevr, ts);
+		else
+			return new PValue(src, val, cnt, sevr, ts);
+	}
+
+	static PValue of(Object src, DBR dbr)
+	{
+		Object val = dbr==null ? null : dbr.getValue();
+		if(val!=null && !val.getClass().isArray())
+			throw new RuntimeException("PValue must be built around null or array, not "+val.getClass().getName());
+		return of(src, val, severityOf(dbr), timeOf(dbr));
+	}
+
+	static int severityOf(DBR dbr)
+	{
+		if(dbr==null)
+			return 3;
+		else if(dbr.isSTS()) // includes TIME
+			return ((STS)dbr).getSeverity().getValue();
+		else
+			return 0; // assume valid
+	}
+
+	static TimeStamp timeOf(DBR dbr)
+	{
+		if(dbr!=null && dbr.isTIME())
+			return ((TIME)dbr).getTimeStamp();
+		else
+			return new TimeStamp(); // now
+	}
+
+	/** The value array.  May be longer than getCount() */
 	public Object getValue() { return value; }
+	/** Number of valid elements in the value array */
+	public int getCount() { return count; }
+	/** Return the value array to its pool, when taken from a Monitor with
+	 *  setPooling() enabled.  The value array must not be used afterwards.
+	 *  Otherwise does nothing.
+	 */
+	public void release()
+	{
+		ValuePool p = poolUpdater.getAndSet(this, null);
+		if(p!=null)
+			p.recycle(value);
+	}
+
+	/** Number of valid elements.  Same as getCount() */
+	public int length() { return count; }
+
+	protected final void checkIndex(int i)
+	{
+		if(i<0 || i>=count)
+			throw new IndexOutOfBoundsException("Index "+i+" of "+count);
+	}
+
+	/** Element 'i' as a double.  NaN if not numeric */
+	public double getDouble(int i)
+	{
+		checkIndex(i);
+		Object e = Array.get(value, i);
+		return e instanceof Number ? ((Number)e).doubleValue() : Double.NaN;
+	}
+
+	/** Copy of the valid elements as double.  NaN if not numeric */
+	public double[] getDoubles()
+	{
+		double[] ret = new double[count];
+		for(int i=0; i<count; i++)
+			ret[i] = getDouble(i);
+		return ret;
+	}
+
+	/** Element 'i' as a string */
+	public String getString(int i)
+	{
+		checkIndex(i);
+		return String.valueOf(Array.get(value, i));
+	}
+
 	public int getSevr() { return severity; }
 	public double getTime() { return time.asDouble(); }
 	public long[] getTimeInt() {
-		return new long[]{time.secPastEpoch()+631152000, time.nsec()};
+		return new long[]{time.secPastEpoch()+EPICS_EPOCH, time.nsec()};
+	}
+
+	// overridden to append without boxing
+	protected void appendElement(StringBuilder b, int i)
+	{
+		b.append(Array.get(value, i));
 	}
 
 	public String toString() {
@@ -71,9 +184,9 @@ public class PValue extends EventObject {
 		if(value==null) {
 			b.append("<no data>");
 		} else {
-			int nelem = Array.getLength(value);
+			int nelem = count;
 			if(nelem==1) {
-				b.append(Array.get(value,0).toString());
+				appendElement(b, 0);
 	
 				if(severity!=0) {
 					b.append(" ");
@@ -88,7 +201,7 @@ public class PValue extends EventObject {
 	
 				b.append("[");
 				for(int i=0; i<nelem; i++) {
-					b.append(Array.get(value, i));
+					appendElement(b, i);
 					if(i!=nelem-1)
 						b.append(", ");
 				}
@@ -105,6 +218,6 @@ public class PValue extends EventObject {
 			// prevent non-monotonic disconnect time, which archivers might ignore...
 			dtime = TimeStamp.add(ptime, 1e-9);
 		}
-		return new PValue(src, pval, 3, dtime);
+		return of(src, pval.getValue(), 3, dtime);
 	}
 }
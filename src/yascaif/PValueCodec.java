@@ -0,0 +1,247 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import gov.aps.jca.dbr.TimeStamp;
+
+/** Compact binary encoding of PValue.
+ *
+ *  All fields are little endian, whatever the order of the ByteBuffer,
+ *  which is restored afterwards.
+ *
+ *  byte type, byte severity, long POSIX seconds, int nanoseconds,
+ *  int element count, then the elements.  Each string element is
+ *  an unsigned short length and UTF-8 bytes.
+ *
+ *  Numeric elements are copied directly between the value array and
+ *  the buffer.  The source of a decoded PValue is not encoded.
+ */
+public final class PValueCodec {
+	private PValueCodec() {}
+
+	static final byte T_NONE = 0, T_DOUBLE = 1, T_FLOAT = 2, T_INT = 3,
+			T_SHORT = 4, T_BYTE = 5, T_STRING = 6;
+	/** Size of the fields before the elements */
+	public static final int HEADER = 18;
+	/** Offsets of the seconds (long) and nanoseconds (int) fields */
+	public static final int SECONDS_OFFSET = 2, NANOS_OFFSET = 10;
+
+	static byte typeOf(Object val)
+	{
+		if(val instanceof double[]) return T_DOUBLE;
+		else if(val instanceof float[]) return T_FLOAT;
+		else if(val instanceof int[]) return T_INT;
+		else if(val instanceof short[]) return T_SHORT;
+		else if(val instanceof byte[]) return T_BYTE;
+		else if(val instanceof String[]) return T_STRING;
+		else return T_NONE;
+	}
+
+	/** Number of bytes encode() will write for 'v' */
+	public static int encodedSize(PValue v)
+	{
+		int n = v.count;
+		switch(typeOf(v.value)) {
+		case T_DOUBLE: return HEADER+8*n;
+		case T_FLOAT:
+		case T_INT: return HEADER+4*n;
+		case T_SHORT: return HEADER+2*n;
+		case T_BYTE: return HEADER+n;
+		case T_STRING: {
+			String[] s = (String[])v.value;
+			int size = HEADER;
+			for(int i=0; i<n; i++)
+				size += 2+Math.min(0xffff, utf8Length(s[i]));
+			return size;
+		}
+		default: return HEADER;
+		}
+	}
+
+	/** Write 'v' at the position of 'b', and advance the position.
+	 *  @throws java.nio.BufferOverflowException if there is not room for encodedSize(v) bytes
+	 */
+	public static void encode(ByteBuffer b, PValue v)
+	{
+		final ByteOrder order = b.order();
+		b.order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			final int n = v.count;
+			final Object val = v.value;
+			final byte type = typeOf(val);
+
+			b.put(type);
+			b.put((byte)v.severity);
+			b.putLong(v.time.secPastEpoch()+PValue.EPICS_EPOCH);
+			b.putInt((int)v.time.nsec());
+			b.putInt(type==T_NONE ? 0 : n);
+
+			switch(type) {
+			case T_DOUBLE:
+				if(n==1) b.putDouble(((double[])val)[0]);
+				else { b.asDoubleBuffer().put((double[])val, 0, n); skip(b, 8*n); }
+				break;
+			case T_FLOAT:
+				b.asFloatBuffer().put((float[])val, 0, n); skip(b, 4*n);
+				break;
+			case T_INT:
+				if(n==1) b.putInt(((int[])val)[0]);
+				else { b.asIntBuffer().put((int[])val, 0, n); skip(b, 4*n); }
+				break;
+			case T_SHORT:
+				b.asShortBuffer().put((short[])val, 0, n); skip(b, 2*n);
+				break;
+			case T_BYTE:
+				b.put((byte[])val, 0, n);
+				break;
+			case T_STRING: {
+				String[] s = (String[])val;
+				for(int i=0; i<n; i++)
+					putString(b, s[i]);
+				break;
+			}
+			default:
+			}
+		} finally {
+			b.order(order);
+		}
+	}
+
+	/** Read a PValue written by encode(), and advance the position.
+	 *  @param src Source of the returned PValue
+	 *  @throws BufferUnderflowException if the encoding is incomplete
+	 */
+	public static PValue decode(ByteBuffer b, Object src)
+	{
+		final ByteOrder order = b.order();
+		b.order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			byte type = b.get();
+			int sevr = b.get();
+			long sec = b.getLong();
+			int nsec = b.getInt();
+			int n = b.getInt();
+			if(n<0)
+				throw new IllegalArgumentException("Invalid element count "+n);
+			TimeStamp ts = new TimeStamp(sec-PValue.EPICS_EPOCH, nsec);
+			Object val;
+			switch(type) {
+			case T_DOUBLE: {
+				check(b, 8L*n);
+				double[] a = new double[n];
+				b.asDoubleBuffer().get(a); skip(b, 8*n);
+				val = a;
+				break;
+			}
+			case T_FLOAT: {
+				check(b, 4L*n);
+				float[] a = new float[n];
+				b.asFloatBuffer().get(a); skip(b, 4*n);
+				val = a;
+				break;
+			}
+			case T_INT: {
+				check(b, 4L*n);
+				int[] a = new int[n];
+				b.asIntBuffer().get(a); skip(b, 4*n);
+				val = a;
+				break;
+			}
+			case T_SHORT: {
+				check(b, 2L*n);
+				short[] a = new short[n];
+				b.asShortBuffer().get(a); skip(b, 2*n);
+				val = a;
+				break;
+			}
+			case T_BYTE: {
+				check(b, n);
+				byte[] a = new byte[n];
+				b.get(a);
+				val = a;
+				break;
+			}
+			case T_STRING: {
+				check(b, 2L*n);
+				String[] a = new String[n];
+				for(int i=0; i<n; i++)
+					a[i] = getString(b);
+				val = a;
+				break;
+			}
+			case T_NONE:
+				val = null;
+				n = 0;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown value type "+type);
+			}
+			return PValue.of(src, val, n, sevr, ts);
+		} finally {
+			b.order(order);
+		}
+	}
+
+	private static void skip(ByteBuffer b, int n)
+	{
+		b.position(b.position()+n);
+	}
+
+	// check before allocating for a bad count
+	private static void check(ByteBuffer b, long n)
+	{
+		if(b.remaining()<n)
+			throw new BufferUnderflowException();
+	}
+
+	// same as getBytes(UTF_8).length, which only non-ASCII strings need
+	static int utf8Length(String s)
+	{
+		if(s==null)
+			return 0;
+		for(int i=0, N=s.length(); i<N; i++) {
+			if(s.charAt(i)>=0x80)
+				return s.getBytes(StandardCharsets.UTF_8).length;
+		}
+		return s.length();
+	}
+
+	// ASCII directly, otherwise through an encoded copy
+	private static void putString(ByteBuffer b, String s)
+	{
+		int len = utf8Length(s);
+		if(s==null || (len==s.length() && len<=0xffff)) {
+			b.putShort((short)len);
+			for(int i=0; i<len; i++)
+				b.put((byte)s.charAt(i));
+		} else {
+			byte[] e = s.getBytes(StandardCharsets.UTF_8);
+			int n = Math.min(0xffff, e.length);
+			b.putShort((short)n);
+			b.put(e, 0, n);
+		}
+	}
+
+	private static String getString(ByteBuffer b)
+	{
+		int len = b.getShort()&0xffff;
+		check(b, len);
+		if(b.hasArray()) {
+			String s = new String(b.array(), b.arrayOffset()+b.position(), len, StandardCharsets.UTF_8);
+			skip(b, len);
+			return s;
+		}
+		byte[] e = new byte[len];
+		b.get(e);
+		return new String(e, StandardCharsets.UTF_8);
+	}
+}
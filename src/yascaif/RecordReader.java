@@ -0,0 +1,168 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Read updates written by a Recorder, in the order written.
+ *
+ *  Segments are read in order.  With setRange(), segments
+ *  without updates in the range are skipped without reading.
+ *  A segment still being written is read up to the last update
+ *  written when it is opened.
+ *
+ *  Not thread safe.
+ */
+public class RecordReader implements AutoCloseable {
+
+	/** One recorded update */
+	public static class Record {
+		private final int id;
+		private final String name;
+		private final PValue value;
+
+		Record(int id, String name, PValue value)
+		{
+			this.id = id;
+			this.name = name;
+			this.value = value;
+		}
+
+		/** PV id, as assigned by Recorder.addPV() */
+		public int getId() { return id; }
+		/** PV name, or null if not known */
+		public String getName() { return name; }
+		public PValue getValue() { return value; }
+
+		@Override
+		public String toString() {
+			return name+" "+value;
+		}
+	}
+
+	private final File dir;
+	private File[] files;
+	private int next;
+	private MappedByteBuffer buf;
+	private int end;
+	// index is PV id
+	private final List<String> names = new ArrayList<>();
+	private double t0 = Double.NEGATIVE_INFINITY, t1 = Double.POSITIVE_INFINITY;
+
+	public RecordReader(File dir)
+	{
+		this.dir = dir;
+		rewind();
+	}
+
+	@Override
+	public void close()
+	{
+		buf = null;
+		next = files.length;
+	}
+
+	/** Start again from the first segment.  Also finds segments added since. */
+	public void rewind()
+	{
+		files = Recorder.segmentFiles(dir);
+		next = 0;
+		buf = null;
+	}
+
+	/** Only return updates with t0 <= time <= t1.
+	 *  Times are in the same units as PValue.getTime().
+	 */
+	public void setRange(double t0, double t1)
+	{
+		this.t0 = t0;
+		this.t1 = t1;
+	}
+
+	/** Number of segment files found */
+	public int getSegmentCount() { return files.length; }
+
+	/** PV name for an id of a Record returned by next(), or null if not known */
+	public String getName(int id)
+	{
+		return id<names.size() ? names.get(id) : null;
+	}
+
+	/** The next update, or null when all segments have been read */
+	public Record next()
+	{
+		while(true) {
+			if(buf==null || buf.position()>=end) {
+				if(!openNext())
+					return null;
+				continue;
+			}
+			int start = buf.position();
+			int len = buf.getInt();
+			if(len<Recorder.RECORD || len>end-start)
+				throw new RuntimeException("Corrupt record in "+files[next-1]+" at "+start);
+			byte kind = buf.get();
+			int id = buf.getInt();
+
+			if(kind==Recorder.NAME) {
+				byte[] b = new byte[buf.getShort()&0xffff];
+				buf.get(b);
+				while(names.size()<=id)
+					names.add(null);
+				names.set(id, new String(b, StandardCharsets.UTF_8));
+
+			} else if(kind==Recorder.VALUE) {
+				int value = start+Recorder.RECORD;
+				long sec = buf.getLong(value+PValueCodec.SECONDS_OFFSET);
+				int nsec = buf.getInt(value+PValueCodec.NANOS_OFFSET);
+				double t = History.toSeconds(sec*1000000000L+nsec);
+				if(t>=t0 && t<=t1) {
+					PValue v = PValueCodec.decode(buf, this);
+					buf.position(start+len);
+					return new Record(id, getName(id), v);
+				}
+			}
+			buf.position(start+len);
+		}
+	}
+
+	private boolean openNext()
+	{
+		buf = null;
+		while(next<files.length) {
+			File f = files[next++];
+			try(RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+				MappedByteBuffer b = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+				b.order(ByteOrder.LITTLE_ENDIAN);
+				if(b.limit()<Recorder.HEADER || b.getInt(0)!=Recorder.MAGIC)
+					throw new RuntimeException("Not a recorder segment "+f);
+				if(b.getInt(4)!=Recorder.VERSION)
+					throw new RuntimeException("Unsupported version "+b.getInt(4)+" of "+f);
+
+				long count = b.getLong(Recorder.H_COUNT);
+				if(count>0 && (History.toSeconds(b.getLong(Recorder.H_MAX))<t0
+						|| History.toSeconds(b.getLong(Recorder.H_MIN))>t1))
+					continue; // later segments repeat its PV names
+				end = b.getInt(Recorder.H_END);
+				b.position(Recorder.HEADER);
+				buf = b;
+				return true;
+			} catch (IOException e) {
+				throw new RuntimeException("Failed to read "+f, e);
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,333 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Append updates to memory mapped binary files.
+ *
+ *  Updates are queued without blocking, and written by a separate thread.
+ *  Updates are dropped if the queue is full.
+ *  A new segment file is started when the current one is full.
+ *  Each segment begins with the names of all PVs, so may be read alone.
+ *  Data is only forced to disk when a segment is finished, and by close().
+ *  A finished segment is truncated to the records written.
+ *
+ *  @see RecordReader
+ */
+public class Recorder implements AutoCloseable {
+	private static Logger L = Logger.getLogger(Recorder.class.getName());
+
+	/* File format, little endian.
+	 *
+	 * Segment header (HEADER bytes)
+	 *   int magic, int version, long min. time, long max. time (POSIX epoch nanoseconds),
+	 *   long # of values, int end of written records
+	 * Records
+	 *   int length (including this int), byte kind, int PV id, then
+	 *   NAME  : short length, UTF-8 name
+	 *   VALUE : PValueCodec encoding
+	 */
+	static final int MAGIC = 0x52414359, VERSION = 1, HEADER = 64;
+	static final int H_MIN = 8, H_MAX = 16, H_COUNT = 24, H_END = 32;
+	// size of record length, kind, and PV id
+	static final int RECORD = 9;
+	static final byte NAME = 1, VALUE = 2;
+	static final String PREFIX = "segment-", SUFFIX = ".dat";
+
+	private final File dir;
+	private final long segmentSize;
+	private final EventRing<MonitorGroup.Event> queue;
+	// index is PV id
+	private final List<String> names = new CopyOnWriteArrayList<>();
+	private final Map<Monitor, Consumer<PValue>> monitors = new ConcurrentHashMap<>();
+	private final LongAdder dropped = new LongAdder();
+	private volatile long written;
+	private volatile int segments;
+	private volatile boolean closing;
+	private volatile Throwable failed;
+	private final Thread writer;
+
+	// only used by the writer thread
+	private int seq;
+	private File file;
+	private MappedByteBuffer buf;
+	private int namesWritten;
+	private long minTime, maxTime, count;
+
+	/** Write to 64MB segments in 'dir', queueing up to 65536 updates */
+	public Recorder(File dir)
+	{
+		this(dir, 64<<20, 1<<16);
+	}
+
+	/**
+	 * @param dir Directory for segment files.  Created if necessary.
+	 * @param segmentSize Size of each segment file in bytes.  Larger if needed to hold one update.
+	 * @param capacity Max. number of updates queued for the writer.
+	 */
+	public Recorder(File dir, long segmentSize, int capacity)
+	{
+		if(segmentSize<4096 || segmentSize>Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid segment size "+segmentSize);
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+		queue = new EventRing<>(Math.max(1, capacity));
+		if(!dir.isDirectory() && !dir.mkdirs())
+			throw new RuntimeException("Can't create "+dir);
+		for(File f : segmentFiles(dir))
+			seq = Math.max(seq, segmentNumber(f));
+
+		writer = new Thread("Recorder "+dir) {
+			@Override
+			public void run() {
+				runWriter();
+			}
+		};
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/** Stop recording, write all queued updates, and close the current segment */
+	@Override
+	public void close()
+	{
+		for(Map.Entry<Monitor, Consumer<PValue>> e : monitors.entrySet())
+			e.getKey().setRecorder(e.getValue(), null);
+		monitors.clear();
+		closing = true;
+		queue.retire();
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Assign an id for a PV name
+	 *  @return PV id, for record()
+	 */
+	public synchronized int addPV(String name)
+	{
+		names.add(name);
+		return names.size()-1;
+	}
+
+	/** Record all updates of 'M', replacing any other Recorder of 'M'.
+	 *  @return PV id
+	 */
+	public int add(Monitor M)
+	{
+		final int id = addPV(M.getName());
+		Consumer<PValue> r = v -> record(id, v);
+		monitors.put(M, r);
+		M.setRecorder(null, r);
+		return id;
+	}
+
+	/** Record all updates of every PV in 'G'.
+	 *  @return PV id of the first PV, later PVs have consecutive ids
+	 */
+	public synchronized int add(MonitorGroup G)
+	{
+		int first = names.size();
+		for(int i=0; i<G.size(); i++)
+			add(G.getMonitor(i));
+		return first;
+	}
+
+	/** Queue one update without waiting.
+	 *  @param id as returned by addPV()
+	 *  @return false if dropped
+	 */
+	public boolean record(int id, PValue v)
+	{
+		if(closing || failed!=null || !queue.offer(new MonitorGroup.Event(id, v))) {
+			dropped.increment();
+			return false;
+		}
+		return true;
+	}
+
+	public File getDirectory() { return dir; }
+
+	/** Number of updates not recorded, because the queue was full, or after an error */
+	public long getDropped() { return dropped.sum(); }
+	/** Number of updates written */
+	public long getWritten() { return written; }
+	/** Number of queued updates */
+	public int getQueued() { return queue.size(); }
+	/** Number of segment files started */
+	public int getSegments() { return segments; }
+	/** Error which stopped the writer, or null */
+	public Throwable getError() { return failed; }
+
+	private void runWriter()
+	{
+		try {
+			while(true) {
+				MonitorGroup.Event e = queue.poll(100000000L);
+				if(e==null) {
+					if(closing && queue.size()==0)
+						break;
+					continue;
+				}
+				long n = 0;
+				do {
+					write(e.getIndex(), e.getValue());
+					n++;
+				} while((e=queue.poll())!=null);
+				updateHeader();
+				written += n;
+			}
+		} catch(InterruptedException e) {
+			// stop
+		} catch(Throwable e) {
+			failed = e;
+			L.log(Level.SEVERE, "Recorder failed writing to "+dir, e);
+		} finally {
+			try {
+				finishSegment();
+			} catch (IOException e) {
+				L.log(Level.SEVERE, "Recorder failed to close segment in "+dir, e);
+			}
+			queue.clear();
+		}
+	}
+
+	private void write(int id, PValue v) throws IOException
+	{
+		int need = RECORD + PValueCodec.encodedSize(v);
+		int nnames = names.size();
+		if(buf==null) {
+			startSegment(need);
+		} else if(id>=namesWritten) {
+			int nsize = 0;
+			for(int i=namesWritten; i<nnames; i++)
+				nsize += nameSize(names.get(i));
+			if(buf.remaining()<nsize+need)
+				startSegment(need);
+			else
+				writeNames(nnames);
+		} else if(buf.remaining()<need) {
+			startSegment(need);
+		}
+
+		long t = History.epochNanos(v.time);
+		if(count==0 || t<minTime) minTime = t;
+		if(count==0 || t>maxTime) maxTime = t;
+		count++;
+
+		buf.putInt(need);
+		buf.put(VALUE);
+		buf.putInt(id);
+		PValueCodec.encode(buf, v);
+	}
+
+	private void startSegment(int need) throws IOException
+	{
+		finishSegment();
+
+		int nnames = names.size(), nsize = 0;
+		for(int i=0; i<nnames; i++)
+			nsize += nameSize(names.get(i));
+		long size = Math.max(segmentSize, (long)HEADER+nsize+need);
+
+		File f = new File(dir, String.format("%s%06d%s", PREFIX, ++seq, SUFFIX));
+		// mapping remains valid after the file is closed
+		try(RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+			buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		file = f;
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(0, MAGIC);
+		buf.putInt(4, VERSION);
+		buf.position(HEADER);
+		count = 0;
+		minTime = maxTime = 0;
+		namesWritten = 0;
+		writeNames(nnames);
+		updateHeader();
+		segments++;
+		L.fine("Start segment "+f);
+	}
+
+	private void finishSegment() throws IOException
+	{
+		if(buf==null)
+			return;
+		updateHeader();
+		buf.force();
+		int end = buf.position();
+		buf = null;
+		// the unused part of a mapped segment is sparse, but not when copied
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.getChannel().truncate(end);
+		}
+	}
+
+	private void updateHeader()
+	{
+		if(buf==null)
+			return;
+		buf.putLong(H_MIN, minTime);
+		buf.putLong(H_MAX, maxTime);
+		buf.putLong(H_COUNT, count);
+		buf.putInt(H_END, buf.position());
+	}
+
+	private static int nameSize(String name)
+	{
+		return 11 + name.getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private void writeNames(int nnames)
+	{
+		for(; namesWritten<nnames; namesWritten++) {
+			byte[] b = names.get(namesWritten).getBytes(StandardCharsets.UTF_8);
+			buf.putInt(11+b.length);
+			buf.put(NAME);
+			buf.putInt(namesWritten);
+			buf.putShort((short)b.length);
+			buf.put(b);
+		}
+	}
+
+	static File[] segmentFiles(File dir)
+	{
+		File[] ret = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+		if(ret==null)
+			return new File[0];
+		Arrays.sort(ret, (a, b) -> Integer.compare(segmentNumber(a), segmentNumber(b)));
+		return ret;
+	}
+
+	static int segmentNumber(File f)
+	{
+		String n = f.getName();
+		try {
+			return Integer.parseInt(n.substring(PREFIX.length(), n.length()-SUFFIX.length()));
+		} catch(NumberFormatException e) {
+			return 0;
+		}
+	}
+}
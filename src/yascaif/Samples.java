@@ -0,0 +1,127 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+
+/** Several updates of one PV packed into parallel arrays.
+ *
+ *  Element i of each array describes the i-th update, oldest first.
+ */
+public class Samples {
+	private final int count;
+	private final double[] values;
+	private final double[] times;
+	private final int[] sevr;
+	// only when some update has other than one element
+	private final double[][] arrays;
+	// only for string PVs
+	private final String[] strings;
+
+	Samples(int count, double[] values, double[] times, int[] sevr, double[][] arrays, String[] strings)
+	{
+		this.count = count;
+		this.values = values;
+		this.times = times;
+		this.sevr = sevr;
+		this.arrays = arrays;
+		this.strings = strings;
+	}
+
+	/** Pack the first 'n' entries of 'src'.
+	 *  Pooled value buffers are copied, so they may then be released.
+	 */
+	static Samples pack(PValue[] src, int n)
+	{
+		double[] values = new double[n], times = new double[n];
+		int[] sevr = new int[n];
+		double[][] arrays = null;
+		String[] strings = null;
+
+		for(int i=0; i<n; i++) {
+			PValue v = src[i];
+			times[i] = v.getTime();
+			sevr[i] = v.severity;
+			values[i] = v.count>0 ? toDouble(v.value, 0) : Double.NaN;
+			if(v.value instanceof String[]) {
+				if(strings==null)
+					strings = new String[n];
+				strings[i] = v.count>0 ? ((String[])v.value)[0] : null;
+			}
+			if(v.count!=1 && arrays==null)
+				arrays = new double[n][];
+		}
+
+		if(arrays!=null) {
+			for(int i=0; i<n; i++)
+				arrays[i] = toDoubles(src[i].value, src[i].count, src[i].pool!=null);
+		}
+		return new Samples(n, values, times, sevr, arrays, strings);
+	}
+
+	static double toDouble(Object arr, int i)
+	{
+		if(arr instanceof double[])
+			return ((double[])arr)[i];
+		else if(arr instanceof float[])
+			return ((float[])arr)[i];
+		else if(arr instanceof int[])
+			return ((int[])arr)[i];
+		else if(arr instanceof short[])
+			return ((short[])arr)[i];
+		else if(arr instanceof byte[])
+			return ((byte[])arr)[i];
+		else
+			return Double.NaN;
+	}
+
+	// Unless 'copy', re-uses a double[] of exactly 'count' elements
+	static double[] toDoubles(Object arr, int count, boolean copy)
+	{
+		if(arr instanceof double[]) {
+			double[] d = (double[])arr;
+			return d.length==count && !copy ? d : Arrays.copyOf(d, count);
+		}
+		double[] ret = new double[count];
+		if(arr instanceof float[]) {
+			float[] a = (float[])arr;
+			for(int i=0; i<count; i++) ret[i] = a[i];
+		} else if(arr instanceof int[]) {
+			int[] a = (int[])arr;
+			for(int i=0; i<count; i++) ret[i] = a[i];
+		} else if(arr instanceof short[]) {
+			short[] a = (short[])arr;
+			for(int i=0; i<count; i++) ret[i] = a[i];
+		} else if(arr instanceof byte[]) {
+			byte[] a = (byte[])arr;
+			for(int i=0; i<count; i++) ret[i] = a[i];
+		} else {
+			Arrays.fill(ret, Double.NaN);
+		}
+		return ret;
+	}
+
+	/** Number of updates */
+	public int getCount() { return count; }
+	/** First element of each update.  NaN for non-numeric or empty values. */
+	public double[] getValues() { return values; }
+	/** Time stamp of each update, as from PValue.getTime() */
+	public double[] getTimes() { return times; }
+	/** Alarm severity of each update */
+	public int[] getSevr() { return sevr; }
+	/** All elements of each update, one row per update.
+	 *  null if every update has exactly one element.
+	 */
+	public double[][] getArrays() { return arrays; }
+	/** First element of each update of a string PV, otherwise null */
+	public String[] getStrings() { return strings; }
+
+	@Override
+	public String toString() {
+		return "Samples("+count+(arrays!=null ? ", arrays" : "")+")";
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+
+/** PValue holding a short[], eg. from DBR_SHORT and DBR_ENUM */
+public class ShortPValue extends PValue {
+	private static final long serialVersionUID = 7104153723070708275L;
+
+	private final short[] data;
+
+	ShortPValue(Object src, short[] val, int cnt, int sevr, TimeStamp ts) {
+		super(src, val, cnt, sevr, ts);
+		data = val;
+	}
+
+	/** Element 'i' */
+	public short getShortValue(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	/** Copy of the valid elements */
+	public short[] getShortValues()
+	{
+		return Arrays.copyOf(data, count);
+	}
+
+	@Override
+	public double getDouble(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	@Override
+	public double[] getDoubles()
+	{
+		double[] ret = new double[count];
+		for(int i=0; i<count; i++)
+			ret[i] = data[i];
+		return ret;
+	}
+
+	@Override
+	public String getString(int i)
+	{
+		checkIndex(i);
+		return String.valueOf(data[i]);
+	}
+
+	@Override
+	protected void appendElement(StringBuilder b, int i)
+	{
+		b.append(data[i]);
+	}
+}
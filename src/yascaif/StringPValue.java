@@ -0,0 +1,54 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+
+/** PValue holding a String[], eg. from DBR_STRING */
+public class StringPValue extends PValue {
+	private static final long serialVersionUID = 685474049360115749L;
+
+	private final String[] data;
+
+	StringPValue(Object src, String[] val, int cnt, int sevr, TimeStamp ts) {
+		super(src, val, cnt, sevr, ts);
+		data = val;
+	}
+
+	/** Copy of the valid elements */
+	public String[] getStrings()
+	{
+		return Arrays.copyOf(data, count);
+	}
+
+	@Override
+	public String getString(int i)
+	{
+		checkIndex(i);
+		return data[i];
+	}
+
+	/** Element 'i' parsed as a number, or NaN */
+	@Override
+	public double getDouble(int i)
+	{
+		checkIndex(i);
+		try {
+			return Double.parseDouble(data[i]);
+		} catch(NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	@Override
+	protected void appendElement(StringBuilder b, int i)
+	{
+		b.append(data[i]);
+	}
+}
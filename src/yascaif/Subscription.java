@@ -0,0 +1,271 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.event.ConnectionEvent;
+import gov.aps.jca.event.ConnectionListener;
+import gov.aps.jca.event.MonitorEvent;
+import gov.aps.jca.event.MonitorListener;
+
+import com.cosylab.epics.caj.CAJChannel;
+
+/** One CAJ subscription, shared by all Monitor handles of a CA context
+ *  with the same PV name, element count, and event mask.
+ *
+ *  Reference counted by CA.subscribe() and CA.unsubscribe().
+ *  The CAJ subscription is cleared when the last handle is closed.
+ *  Handles are only weakly referenced, so that an unclosed Monitor
+ *  may still be finalized.
+ */
+final class Subscription implements ConnectionListener, MonitorListener {
+	private static Logger L = Logger.getLogger(Subscription.class.getName());
+
+	static final class Key {
+		final String name;
+		final int count, mask;
+
+		Key(String name, int count, int mask)
+		{
+			this.name = name;
+			this.count = count;
+			this.mask = mask;
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode()*31*31 + count*31 + mask;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key))
+				return false;
+			Key o = (Key)obj;
+			return count==o.count && mask==o.mask && name.equals(o.name);
+		}
+	}
+
+	final Key key;
+	final ChannelEntry entry;
+	final CAJChannel chan;
+	private final CA.FlushBatch batch;
+
+	// # of handles, or -1 once closed
+	private final AtomicInteger refs = new AtomicInteger();
+	private final List<WeakReference<Monitor>> handles = new CopyOnWriteArrayList<>();
+
+	// guarded by this
+	private gov.aps.jca.Monitor mon;
+
+	// latest update, and its PValue (created on first use)
+	private volatile DBR last_value;
+	private volatile PValue last_pvalue;
+	// System.nanoTime() when last_value was received
+	private volatile long last_rx;
+	// updates carry the whole current value, so may serve reads
+	private final boolean cacheable;
+
+	/* When batch!=null, subscribe flushes through it */
+	Subscription(Key key, ChannelEntry entry, CA.FlushBatch batch)
+	{
+		this.key = key;
+		this.entry = entry;
+		this.chan = entry.chan;
+		this.batch = batch;
+		cacheable = key.count==0 && (key.mask&Monitor.VALUE)!=0;
+	}
+
+	void start()
+	{
+		try {
+			chan.addConnectionListenerAndFireIfConnected(this);
+		} catch (Exception e) {
+			throw new RuntimeException("Failed to listen for "+key.name, e);
+		}
+	}
+
+	boolean tryAcquire()
+	{
+		while(true) {
+			int cur = refs.get();
+			if(cur<0)
+				return false;
+			if(refs.compareAndSet(cur, cur+1))
+				return true;
+		}
+	}
+
+	/** @return true if this was the last reference, and the caller must close() */
+	boolean release()
+	{
+		return refs.decrementAndGet()==0 && refs.compareAndSet(0, -1);
+	}
+
+	boolean isClosed() { return refs.get()<0; }
+
+	int handleCount() { return handles.size(); }
+
+	/** Add a handle, which is sent the latest update (if any) */
+	void attach(Monitor M)
+	{
+		handles.add(new WeakReference<>(M));
+		PValue last = lastValue();
+		if(last!=null)
+			M.replay(last);
+	}
+
+	void detach(Monitor M)
+	{
+		for(WeakReference<Monitor> ref : handles) {
+			Monitor o = ref.get();
+			if(o==M || o==null)
+				handles.remove(ref);
+		}
+	}
+
+	void close()
+	{
+		try {
+			chan.removeConnectionListener(this);
+		} catch (Exception e) {
+			L.log(Level.WARNING, "Failed to unlisten for "+key.name, e);
+		}
+		uncache();
+		clearMonitor();
+		last_value = null;
+		last_pvalue = null;
+	}
+
+	/** Latest update, or null if none received, or disconnected */
+	PValue lastValue()
+	{
+		DBR dbr = last_value;
+		return dbr==null ? null : valueOf(dbr);
+	}
+
+	/** Latest update if received within 'maxAge' nanoseconds (0 for any age),
+	 *  with 'count' elements (<=0 for any).  Otherwise null.
+	 */
+	DBR cachedDBR(long maxAge, int count)
+	{
+		DBR dbr = last_value;
+		if(dbr==null || (count>0 && count!=dbr.getCount()))
+			return null;
+		if(maxAge>0 && System.nanoTime()-last_rx>maxAge)
+			return null;
+		return dbr;
+	}
+
+	private void uncache()
+	{
+		if(entry.valueSub==this)
+			entry.valueSub = null;
+	}
+
+	/** Share one PValue among handles for each update */
+	PValue valueOf(DBR dbr)
+	{
+		PValue pv = last_pvalue;
+		if(pv==null || pv.getSource()!=dbr) {
+			pv = PValue.of(dbr, dbr);
+			if(dbr==last_value)
+				last_pvalue = pv;
+		}
+		return pv;
+	}
+
+	private synchronized boolean clearMonitor()
+	{
+		gov.aps.jca.Monitor m = mon;
+		mon = null;
+		if(m!=null) {
+			try {
+				m.clear();
+			} catch (Exception e) {
+				L.log(Level.WARNING, "Failed to clear subscription for "+key.name, e);
+			}
+		}
+		return m!=null;
+	}
+
+	private synchronized void subscribe(DBRType dt)
+	{
+		if(mon!=null || refs.get()<0)
+			return;
+		try {
+			L.fine("Subscribe to "+key.name);
+			mon = chan.addMonitor(dt, key.count, key.mask, this);
+			if(batch!=null)
+				batch.flushIfSent(chan.getContext());
+			else
+				chan.getContext().flushIO();
+		} catch (Exception e) {
+			L.log(Level.WARNING, "Failed to create subscription for "+key.name, e);
+		}
+	}
+
+	private void notifyDisconnect()
+	{
+		for(WeakReference<Monitor> ref : handles) {
+			Monitor M = ref.get();
+			if(M!=null)
+				M.disconnected(this);
+		}
+	}
+
+	@Override
+	public void connectionChanged(ConnectionEvent ev) {
+		L.fine("Connection state changed "+key.name+" "+Boolean.toString(ev.isConnected()));
+		if(ev.isConnected()) {
+			Descriptor desc = entry.descriptor();
+			if(desc==null)
+				return; // already disconnected again
+			if(!CA.promotemap.containsKey(desc.getNativeType())) {
+				L.warning("Channel "+key.name+" has unsupported DBR ");
+				notifyDisconnect();
+			}
+			subscribe(desc.getTimeType());
+		} else if(clearMonitor()) {
+			uncache();
+			last_value = null;
+			last_pvalue = null;
+			notifyDisconnect();
+		}
+	}
+
+	@Override
+	public void monitorChanged(MonitorEvent ev) {
+		if(L.isLoggable(Level.FINE))
+			L.fine("Monitor event for "+key.name);
+		try {
+			DBR dbr = ev.getDBR();
+			last_rx = System.nanoTime();
+			last_value = dbr;
+			if(cacheable) {
+				Subscription cur = entry.valueSub;
+				if(cur!=this && (cur==null || cur.isClosed()) && !isClosed())
+					entry.valueSub = this;
+			}
+			for(WeakReference<Monitor> ref : handles) {
+				Monitor M = ref.get();
+				if(M!=null)
+					M.update(this, dbr);
+			}
+		} catch (Exception e) {
+			L.log(Level.WARNING, "Failed to translate/notify for "+key.name, e);
+		}
+	}
+}
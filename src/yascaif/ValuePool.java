@@ -0,0 +1,78 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif;
+
+import java.lang.reflect.Array;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Free list of value arrays, re-used for queued Monitor updates.
+ *  Grows on demand to the number of buffers in use.
+ *  Lengths are rounded up to one of 8 size classes per power of two,
+ *  at most 12.5% larger, so that updates of similar length share buffers.
+ *
+ *  Copying each update into a long lived buffer lets the array
+ *  allocated by CAJ die young, instead of being promoted while queued.
+ */
+final class ValuePool {
+	private final EventRing<Object> free;
+	final LongAdder allocated = new LongAdder();
+
+	ValuePool(int size)
+	{
+		free = new EventRing<>(size);
+	}
+
+	int size() { return free.capacity(); }
+
+	// An array of 'type' with at least 'len' elements
+	private Object take(Class<?> type, int len)
+	{
+		// look at each free buffer at most once
+		for(int n=free.size(); n>0; n--) {
+			Object arr = free.poll();
+			if(arr==null)
+				break;
+			if(arr.getClass()!=type)
+				continue; // discard, eg. after reconnect with another type
+			if(Array.getLength(arr)>=len)
+				return arr;
+			free.offer(arr); // too short, keep for a shorter update
+		}
+		allocated.increment();
+		return Array.newInstance(type.getComponentType(), sizeClass(len));
+	}
+
+	// round up to a multiple of 1/8 of the next smaller power of two
+	static int sizeClass(int len)
+	{
+		if(len<=8)
+			return len;
+		int shift = 32-Integer.numberOfLeadingZeros(len-1)-4;
+		long size = ((long)((len-1)>>shift)+1)<<shift;
+		return (int)Math.min(size, Integer.MAX_VALUE-8);
+	}
+
+	void recycle(Object arr)
+	{
+		free.offer(arr); // when full, left for GC
+	}
+
+	/** Copy of 'src' with its value in a pooled buffer.
+	 *  The source of 'src' is replaced by 'source', as a DBR source
+	 *  would keep the array allocated by CAJ alive.
+	 */
+	PValue copyOf(PValue src, Object source)
+	{
+		if(src.value==null)
+			return src;
+		Object arr = take(src.value.getClass(), src.count);
+		System.arraycopy(src.value, 0, arr, 0, src.count);
+		PValue ret = PValue.of(source, arr, src.count, src.severity, src.time);
+		ret.pool = this;
+		return ret;
+	}
+}
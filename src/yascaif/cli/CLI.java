@@ -20,6 +20,7 @@ public class CLI {
 		commands.put("put", Set.class);
 		commands.put("putarr", SetArray.class);
 		commands.put("monitor", Mon.class);
+		commands.put("record", Rec.class);
 	}
 
 	private static String command;
@@ -1,59 +1,42 @@
 package yascaif.cli;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
 import yascaif.CA;
-import yascaif.Monitor;
-import yascaif.Monitor.MonitorListener;
-import yascaif.PValue;
+import yascaif.MonitorGroup;
 
 public class Mon implements Command {
 	private static final Logger L = Logger.getLogger("Monitor");
-	
-	private class MonPrint implements MonitorListener {
-		final String name;
-		MonPrint(String n) { name=n; }
-
-		@Override
-		public void Monitor(PValue data) {
-			System.out.println(name+": "+data.toString());
-		}
-		
-	}
+
+	private volatile boolean done = false;
 
 	@Override
 	public void process(CA ca, List<String> PVs) {
 
+		final Thread worker = Thread.currentThread();
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			@Override
 			public void run() {
-				synchronized(Mon.this) {
-					Mon.this.notify();
+				done = true;
+				try {
+					worker.join(2000);
+				} catch (InterruptedException e) {
+					// continue
 				}
 			}
 		});
 
-		List<Monitor> mons = new ArrayList<>();
-
-		for(String pv : PVs) {
-			L.info("Subscribe to "+pv);
-			Monitor M = ca.monitor(pv);
-			M.addMonitorListener(new MonPrint(pv));
-			mons.add(M);
-		}
-		
-		synchronized (this) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				// continue
+		L.info("Subscribe to "+PVs.size()+" PVs");
+		try(MonitorGroup mons = ca.monitorGroup(PVs.toArray(new String[PVs.size()]))) {
+			mons.setCapacity(Math.max(1024, mons.size()));
+			while(!done) {
+				MonitorGroup.Event ev = mons.waitForAny(0.5);
+				if(ev!=null)
+					System.out.println(mons.getName(ev.getIndex())+": "+ev.getValue().toString());
 			}
-		}
-
-		for(Monitor mon : mons) {
-			mon.close();
+		} catch (InterruptedException e) {
+			// continue
 		}
 
 		L.info("Done");
@@ -0,0 +1,74 @@
+/*
+ * This software is Copyright by the Board of Trustees of Michigan
+ * State University (c) Copyright 2016.
+ *
+ * See LICENSE
+ */
+package yascaif.cli;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import yascaif.CA;
+import yascaif.Monitor;
+import yascaif.OverflowPolicy;
+import yascaif.Recorder;
+
+public class Rec implements Command {
+	private static final Logger L = Logger.getLogger("Record");
+
+	private volatile boolean done = false;
+
+	@Override
+	public void process(CA ca, List<String> PVs) {
+		if(PVs.size()<2) {
+			System.out.println("Must provide directory and PV names ('<dir> <name1> <name2> ...')");
+			System.exit(1);
+		}
+		File dir = new File(PVs.get(0));
+		List<String> names = PVs.subList(1, PVs.size());
+
+		final Thread worker = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				done = true;
+				worker.interrupt();
+				try {
+					worker.join(2000);
+				} catch (InterruptedException e) {
+					// continue
+				}
+			}
+		});
+
+		L.info("Record "+names.size()+" PVs to "+dir);
+		List<Monitor> mons = new ArrayList<>(names.size());
+		try(Recorder rec = new Recorder(dir))
+		{
+			for(String name : names) {
+				Monitor M = ca.monitor(name);
+				mons.add(M);
+				// nothing takes from the queue, so don't replace queued updates
+				M.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+				rec.add(M);
+			}
+			while(!done) {
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException e) {
+					// continue
+				}
+				L.info("Written "+rec.getWritten()+" dropped "+rec.getDropped());
+			}
+		} finally {
+			for(Monitor M : mons)
+				M.close();
+		}
+
+		L.info("Done");
+	}
+
+}
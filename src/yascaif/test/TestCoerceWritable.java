@@ -1,6 +1,9 @@
 package yascaif.test;
 
+import java.nio.ByteBuffer;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 
 import yascaif.CA;
 import junit.framework.TestCase;
@@ -59,14 +62,100 @@ public class TestCoerceWritable extends TestCase {
 		assertEquals(1, arr.length);
 	}
 
+	public void testByte() {
+		byte[] arr;
+
+		arr = (byte[])CA.coerceWritable(Byte.valueOf((byte)42));
+		assertEquals(42, arr[0]);
+		assertEquals(1, arr.length);
+
+		arr = (byte[])CA.coerceWritable(new Byte[]{1, 2});
+		assertEquals(2, arr[1]);
+		assertEquals(2, arr.length);
+
+		ByteBuffer buf = ByteBuffer.wrap(new byte[]{1, 2, 3});
+		buf.get();
+		arr = (byte[])CA.coerceWritable(buf);
+		assertEquals(2, arr[0]);
+		assertEquals(2, arr.length);
+		assertEquals(1, buf.position());
+	}
+
+	public void testLong() {
+		double[] arr;
+
+		arr = (double[])CA.coerceWritable(42l);
+		assertEquals(42.0, arr[0]);
+		assertEquals(1, arr.length);
+
+		arr = (double[])CA.coerceWritable(new long[]{1, 0xffffffffl});
+		assertEquals(4294967295.0, arr[1]);
+		assertEquals(2, arr.length);
+	}
+
+	public void testBoolean() {
+		short[] arr;
+
+		arr = (short[])CA.coerceWritable(true);
+		assertEquals(1, arr[0]);
+		assertEquals(1, arr.length);
+
+		arr = (short[])CA.coerceWritable(new boolean[]{false, true});
+		assertEquals(0, arr[0]);
+		assertEquals(1, arr[1]);
+		assertEquals(2, arr.length);
+	}
+
+	public void testList() {
+		double[] arr;
+
+		List<Number> L = new LinkedList<>();
+		L.add(1);
+		L.add(2.5);
+		arr = (double[])CA.coerceWritable(L);
+		assertEquals(1.0, arr[0]);
+		assertEquals(2.5, arr[1]);
+		assertEquals(2, arr.length);
+
+		arr = (double[])CA.coerceWritable(new Object[]{1.5, 2});
+		assertEquals(1.5, arr[0]);
+		assertEquals(2.0, arr[1]);
+		assertEquals(2, arr.length);
+
+		String[] sarr = (String[])CA.coerceWritable(new Object[]{"a", "b"});
+		assertEquals("b", sarr[1]);
+		assertEquals(2, sarr.length);
+	}
+
 	public void testFail() {
 		try {
-			Object x = CA.coerceWritable(new LinkedList<Double>());
+			Object x = CA.coerceWritable(new HashMap<String, Double>());
 			fail("Unexpected success w/ "+x.getClass().getName()+" "+x.toString());
 		} catch(RuntimeException e) {
 			// success
 		} catch(Throwable e) {
 			fail("Failure w/ unexpected exception "+e.toString());
 		}
+
+		try {
+			Object x = CA.coerceWritable(new Object[]{1.0, new Object()});
+			fail("Unexpected success w/ "+x.getClass().getName()+" "+x.toString());
+		} catch(RuntimeException e) {
+			// success
+		} catch(Throwable e) {
+			fail("Failure w/ unexpected exception "+e.toString());
+		}
+
+		try {
+			List<Object> L = new LinkedList<>();
+			L.add("a");
+			L.add(1.0);
+			Object x = CA.coerceWritable(L);
+			fail("Unexpected success w/ "+x.getClass().getName()+" "+x.toString());
+		} catch(ClassCastException e) {
+			fail("Failure w/ unexpected exception "+e.toString());
+		} catch(RuntimeException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unable to coerce"));
+		}
 	}
 }
@@ -0,0 +1,113 @@
+package yascaif.test;
+
+import gov.aps.jca.dbr.TimeStamp;
+import junit.framework.TestCase;
+import yascaif.CA;
+import yascaif.Correlator;
+import yascaif.Internals;
+import yascaif.PValue;
+
+public class TestCorrelator extends TestCase {
+	private CA ca;
+	private Correlator C;
+
+	@Override
+	protected void setUp() {
+		// no server is needed to queue updates
+		ca = new CA(new CA.Config().addrList("127.0.0.1").autoAddrList(false));
+		C = ca.correlator(new String[]{"test:a", "test:b", "test:c"}, 0.1);
+	}
+
+	@Override
+	protected void tearDown() {
+		C.close();
+		ca.close();
+	}
+
+	// update of PV 'index' at 'sec' seconds, with that value
+	private void post(int index, double sec) {
+		long s = (long)sec;
+		TimeStamp ts = new TimeStamp(s, Math.round((sec-s)*1e9));
+		Internals.post(C.getGroup(), index, PValue.of("test", new double[]{sec}, 0, ts));
+	}
+
+	public void testComplete() throws Exception {
+		assertNull(C.next(0.0));
+		post(1, 10.05);
+		post(0, 10.0);
+		assertNull(C.next(0.0)); // waiting for test:c
+		post(2, 10.1);
+
+		Correlator.Snapshot S = C.next(0.0);
+		assertNotNull(S);
+		assertTrue(S.isComplete());
+		assertEquals(S.getValue(0).getTime(), S.getTime()); // the oldest
+		assertEquals(10.0, S.getValue(0).getDouble(0));
+		assertEquals(10.05, S.getValue(1).getDouble(0));
+		assertEquals(10.1, S.getValue(2).getDouble(0));
+		assertNull(C.next(0.0));
+		assertEquals(1, C.getCompleteCount());
+		assertEquals(0, C.getIncompleteCount());
+	}
+
+	public void testAgedOut() throws Exception {
+		post(0, 10.0);
+		post(1, 10.0);
+		post(2, 11.0); // test:c can no longer match 10.0
+		post(0, 11.0);
+		post(1, 11.0);
+
+		Correlator.Snapshot S = C.next(0.0);
+		assertFalse(S.isComplete());
+		assertEquals(1, S.getMissing());
+		assertNull(S.getValue(2));
+		assertEquals(10.0, S.getValue(1).getDouble(0));
+
+		S = C.next(0.0);
+		assertTrue(S.isComplete());
+		assertEquals(11.0, S.getValue(2).getDouble(0));
+		assertEquals(1, C.getCompleteCount());
+		assertEquals(1, C.getIncompleteCount());
+	}
+
+	public void testSkipIncomplete() throws Exception {
+		C.setReportIncomplete(false);
+		post(0, 10.0);
+		post(2, 11.0);
+		post(0, 11.0);
+		post(1, 11.0);
+
+		Correlator.Snapshot S = C.next(0.0);
+		assertTrue(S.isComplete());
+		assertEquals(11.0, S.getValue(0).getDouble(0));
+		assertEquals(1, C.getIncompleteCount());
+	}
+
+	public void testDepth() throws Exception {
+		C.setDepth(3);
+		// test:c never updates
+		for(int t=1; t<=2; t++) {
+			post(0, t);
+			post(1, t);
+		}
+		assertNull(C.next(0.0));
+
+		post(0, 3);
+		post(1, 3);
+		// full, so the oldest is given up on
+		Correlator.Snapshot S = C.next(0.0);
+		assertEquals(1, S.getMissing());
+		assertEquals(1.0, S.getValue(0).getDouble(0));
+		assertEquals(1.0, S.getValue(1).getDouble(0));
+		assertNull(S.getValue(2));
+		assertNull(C.next(0.0)); // 2 buffered, waiting again
+
+		post(0, 4);
+		S = C.next(0.0);
+		assertEquals(2.0, S.getValue(0).getDouble(0));
+		assertEquals(2, C.getIncompleteCount());
+
+		C.clear();
+		assertNull(C.next(0.0));
+	}
+}
@@ -0,0 +1,78 @@
+package yascaif.test;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBR_TIME_Byte;
+import gov.aps.jca.dbr.DBR_TIME_Double;
+import gov.aps.jca.dbr.DBR_TIME_Enum;
+import gov.aps.jca.dbr.DBR_TIME_Float;
+import gov.aps.jca.dbr.DBR_TIME_Int;
+import gov.aps.jca.dbr.DBR_TIME_Short;
+import gov.aps.jca.dbr.DBR_TIME_String;
+import gov.aps.jca.dbr.STS;
+import gov.aps.jca.dbr.Severity;
+import gov.aps.jca.dbr.Status;
+import junit.framework.TestCase;
+import yascaif.Internals;
+
+public class TestDeadband extends TestCase {
+
+	private static DBR sts(DBR dbr, Severity sevr)
+	{
+		((STS)dbr).setSeverity(sevr);
+		((STS)dbr).setStatus(Status.NO_ALARM);
+		return dbr;
+	}
+
+	private static DBR dbl(double... v) { return sts(new DBR_TIME_Double(v), Severity.NO_ALARM); }
+
+	private static boolean within(DBR prev, DBR next, double db)
+	{
+		return Internals.withinDeadband(prev, next, db);
+	}
+
+	public void testScalar() {
+		assertTrue(within(dbl(1.0), dbl(1.5), 0.5));
+		assertTrue(within(dbl(1.0), dbl(0.5), 0.5));
+		assertFalse(within(dbl(1.0), dbl(1.6), 0.5));
+		assertFalse(within(null, dbl(1.0), 0.5)); // first update
+		assertFalse(within(dbl(1.0), dbl(Double.NaN), 0.5));
+		assertFalse(within(dbl(Double.NaN), dbl(Double.NaN), 0.5));
+
+		assertTrue(within(sts(new DBR_TIME_Float(new float[]{1f}), Severity.NO_ALARM),
+				sts(new DBR_TIME_Float(new float[]{1.25f}), Severity.NO_ALARM), 0.5));
+		assertTrue(within(sts(new DBR_TIME_Int(new int[]{10}), Severity.NO_ALARM),
+				sts(new DBR_TIME_Int(new int[]{11}), Severity.NO_ALARM), 1.0));
+		assertFalse(within(sts(new DBR_TIME_Int(new int[]{10}), Severity.NO_ALARM),
+				sts(new DBR_TIME_Int(new int[]{12}), Severity.NO_ALARM), 1.0));
+		assertFalse(within(sts(new DBR_TIME_Int(new int[]{Integer.MIN_VALUE}), Severity.NO_ALARM),
+				sts(new DBR_TIME_Int(new int[]{Integer.MAX_VALUE}), Severity.NO_ALARM), 1.0)); // no overflow
+		assertTrue(within(sts(new DBR_TIME_Short(new short[]{3}), Severity.NO_ALARM),
+				sts(new DBR_TIME_Short(new short[]{4}), Severity.NO_ALARM), 1.0));
+		assertFalse(within(sts(new DBR_TIME_Byte(new byte[]{3}), Severity.NO_ALARM),
+				sts(new DBR_TIME_Byte(new byte[]{5}), Severity.NO_ALARM), 1.0));
+	}
+
+	public void testSeverity() {
+		assertFalse(within(dbl(1.0), sts(new DBR_TIME_Double(new double[]{1.0}), Severity.MINOR_ALARM), 0.5));
+	}
+
+	public void testArray() {
+		assertTrue(within(dbl(1, 2, 3), dbl(1.5, 2, 2.5), 0.5));
+		assertFalse(within(dbl(1, 2, 3), dbl(1, 2, 3.6), 0.5)); // last element
+		assertFalse(within(dbl(1, 2, 3), dbl(1, 2), 0.5)); // length
+		assertFalse(within(dbl(1), sts(new DBR_TIME_Float(new float[]{1f}), Severity.NO_ALARM), 0.5)); // type
+	}
+
+	public void testEnum() {
+		// the value is a short[], but a change of state is not numeric
+		assertFalse(within(sts(new DBR_TIME_Enum(new short[]{0}), Severity.NO_ALARM),
+				sts(new DBR_TIME_Enum(new short[]{1}), Severity.NO_ALARM), 10.0));
+		assertFalse(within(sts(new DBR_TIME_Enum(new short[]{1}), Severity.NO_ALARM),
+				sts(new DBR_TIME_Enum(new short[]{1}), Severity.NO_ALARM), 10.0));
+	}
+
+	public void testString() {
+		assertFalse(within(sts(new DBR_TIME_String(new String[]{"a"}), Severity.NO_ALARM),
+				sts(new DBR_TIME_String(new String[]{"a"}), Severity.NO_ALARM), 10.0));
+	}
+}
@@ -0,0 +1,131 @@
+package yascaif.test;
+
+import junit.framework.TestCase;
+import yascaif.Internals.Ring;
+
+public class TestEventRing extends TestCase {
+
+	public void testFIFO() {
+		Ring<Object> R = new Ring<>(3);
+		assertNull(R.poll());
+		assertEquals(0, R.size());
+
+		// several times around
+		for(int i=0; i<10; i++) {
+			assertTrue(R.offer(i));
+			assertTrue(R.offer(i+100));
+			assertEquals(2, R.size());
+			assertEquals(i, R.poll());
+			assertEquals(i+100, R.poll());
+			assertNull(R.poll());
+		}
+	}
+
+	public void testFull() {
+		Ring<Object> R = new Ring<>(2);
+		assertTrue(R.offer(1));
+		assertTrue(R.offer(2));
+		assertFalse(R.offer(3));
+		assertEquals(2, R.size());
+		assertEquals(1, R.poll());
+		assertTrue(R.offer(3));
+		assertEquals(2, R.poll());
+		assertEquals(3, R.poll());
+	}
+
+	public void testOne() {
+		Ring<Object> R = new Ring<>(1);
+		for(int i=0; i<4; i++) {
+			assertTrue(R.offer(i));
+			assertFalse(R.offer(i+100));
+			assertEquals(1, R.size());
+			assertEquals(i, R.poll());
+			assertNull(R.poll());
+		}
+	}
+
+	public void testReplaceNewest() {
+		Ring<Object> R = new Ring<>(2);
+		assertNull(R.replaceNewest(0));
+		assertTrue(R.offer(1));
+		assertTrue(R.offer(2));
+		assertEquals(2, R.replaceNewest(3));
+		assertEquals(2, R.size());
+		assertEquals(1, R.poll());
+		assertEquals(3, R.poll());
+		assertNull(R.replaceNewest(4));
+	}
+
+	public void testTimeout() throws Exception {
+		Ring<Object> R = new Ring<>(1);
+		long start = System.nanoTime();
+		assertNull(R.poll(50000000l));
+		assertTrue(System.nanoTime()-start >= 50000000l);
+		assertNull(R.poll(0l));
+	}
+
+	public void testWakeup() throws Exception {
+		final Ring<Object> R = new Ring<>(4);
+		final Object[] result = new Object[1];
+		Thread T = new Thread() {
+			@Override
+			public void run() {
+				try {
+					result[0] = R.poll(-1l);
+				} catch (InterruptedException e) {
+					result[0] = e;
+				}
+			}
+		};
+		T.start();
+		Thread.sleep(50);
+		assertTrue(R.offer("hello"));
+		T.join(5000);
+		assertFalse(T.isAlive());
+		assertEquals("hello", result[0]);
+	}
+
+	// one producer and several consumers see each element exactly once
+	public void testConcurrent() throws Exception {
+		final int N = 100000, NC = 3;
+		final Ring<Object> R = new Ring<>(16);
+		final long[] sums = new long[NC];
+		Thread[] consumers = new Thread[NC];
+		for(int c=0; c<NC; c++) {
+			final int idx = c;
+			consumers[c] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while(true) {
+							Integer v = (Integer)R.poll(-1l);
+							if(v<0) break;
+							sums[idx] += v;
+						}
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			consumers[c].start();
+		}
+
+		long expect = 0;
+		for(int i=1; i<=N; i++) {
+			while(!R.offer(i))
+				Thread.yield();
+			expect += i;
+		}
+		for(int c=0; c<NC; c++) {
+			while(!R.offer(-1))
+				Thread.yield();
+		}
+		long total = 0;
+		for(int c=0; c<NC; c++) {
+			consumers[c].join(10000);
+			assertFalse(consumers[c].isAlive());
+			total += sums[c];
+		}
+		assertEquals(expect, total);
+	}
+}
@@ -0,0 +1,120 @@
+package yascaif.test;
+
+import gov.aps.jca.dbr.TimeStamp;
+import junit.framework.TestCase;
+import yascaif.History;
+import yascaif.Internals;
+import yascaif.PValue;
+import yascaif.Samples;
+
+public class TestHistory extends TestCase {
+
+	private static PValue sample(long sec, int nsec, Object val) {
+		return PValue.of("test", val, 0, new TimeStamp(sec, nsec));
+	}
+
+	// samples at t=1..n seconds, with value t
+	private static History fill(int capacity, int n) {
+		History H = Internals.newHistory(capacity, 0);
+		for(int t=1; t<=n; t++)
+			Internals.add(H, sample(t, 0, new double[]{t}));
+		return H;
+	}
+
+	private static void assertTimes(Samples S, double... expect) {
+		assertEquals(expect.length, S.getCount());
+		assertEquals(expect.length, S.getTimes().length);
+		for(int i=0; i<expect.length; i++) {
+			assertEquals(expect[i], S.getTimes()[i], 0.0);
+			assertEquals(expect[i], S.getValues()[i], 0.0);
+		}
+	}
+
+	public void testWrap() {
+		History H = fill(4, 10);
+		assertEquals(4, H.size());
+		assertEquals(10, H.getAdded());
+
+		// oldest kept is at ring index 2, so the result crosses the end of the ring
+		assertTimes(H.between(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY), 7, 8, 9, 10);
+		assertTimes(H.between(8.5, 9.5), 9);
+		assertTimes(H.between(0, 6)); // overwritten
+		assertNull(H.between(0, 100).getArrays());
+	}
+
+	public void testBetweenEdges() {
+		History H = fill(8, 6);
+		assertTimes(H.between(2, 4), 2, 3, 4);
+		assertTimes(H.between(2.5, 4), 3, 4);
+		assertTimes(H.between(2, 3.5), 2, 3);
+		assertTimes(H.between(6, 6), 6);
+		assertTimes(H.between(1, 1), 1);
+		assertTimes(H.between(7, 9));
+		assertTimes(H.between(4, 2));
+	}
+
+	public void testBetweenNanos() {
+		History H = fill(4, 6);
+		long t3 = Internals.epochNanos(new TimeStamp(3, 0)), t5 = Internals.epochNanos(new TimeStamp(5, 0));
+		assertTimes(H.betweenNanos(t3, t5), 3, 4, 5);
+		assertTimes(H.betweenNanos(t3+1, t5-1), 4);
+		assertTimes(H.betweenNanos(t5, Long.MAX_VALUE), 5, 6);
+		assertTimes(H.betweenNanos(Long.MIN_VALUE, t3), 3);
+	}
+
+	public void testFraction() {
+		History H = Internals.newHistory(4, 0);
+		Internals.add(H, sample(1, 0, new double[]{1}));
+		Internals.add(H, sample(1, 500000000, new double[]{1.5}));
+		Internals.add(H, sample(2, 0, new double[]{2}));
+		assertTimes(H.between(1.5, 1.5), 1.5);
+		assertTimes(H.between(1.25, 2), 1.5, 2);
+	}
+
+	public void testLatest() {
+		History H = Internals.newHistory(4, 0);
+		assertEquals(0, H.latest(10).getCount());
+
+		H = fill(4, 10);
+		assertTimes(H.latest(2), 8, 9, 10);
+		assertTimes(H.latest(0), 10);
+		assertTimes(H.latest(100), 7, 8, 9, 10);
+
+		H.clear();
+		assertEquals(0, H.size());
+		assertEquals(0, H.getAdded());
+		assertEquals(0, H.latest(100).getCount());
+
+		Internals.add(H, sample(20, 0, new double[]{20}));
+		assertEquals(1, H.size());
+		assertTimes(H.latest(100), 20);
+		assertTimes(H.between(0, 100), 20);
+	}
+
+	public void testWidth() {
+		History H = Internals.newHistory(3, 2);
+		Internals.add(H, sample(1, 0, new double[]{1, 2, 3})); // truncated
+		Internals.add(H, sample(2, 0, new int[]{4}));
+		Internals.add(H, sample(3, 0, new double[0]));
+		Internals.add(H, sample(4, 0, new short[]{5, 6}));
+
+		Samples S = H.between(0, 10);
+		assertEquals(3, S.getCount());
+		double[][] A = S.getArrays();
+		assertEquals(3, A.length);
+		assertEquals(1, A[0].length);
+		assertEquals(4.0, A[0][0], 0.0);
+		assertEquals(0, A[1].length);
+		assertTrue(Double.isNaN(S.getValues()[1]));
+		assertEquals(2, A[2].length);
+		assertEquals(5.0, A[2][0], 0.0);
+		assertEquals(6.0, A[2][1], 0.0);
+
+		H = Internals.newHistory(2, 2);
+		Internals.add(H, sample(1, 0, new double[]{1, 2, 3}));
+		S = H.between(0, 10);
+		assertEquals(2, S.getArrays()[0].length);
+		assertEquals(1.0, S.getArrays()[0][0], 0.0);
+		assertEquals(2.0, S.getArrays()[0][1], 0.0);
+	}
+}
@@ -0,0 +1,140 @@
+package yascaif.test;
+
+import gov.aps.jca.dbr.TimeStamp;
+import junit.framework.TestCase;
+import yascaif.CA;
+import yascaif.Internals;
+import yascaif.Monitor;
+import yascaif.OverflowPolicy;
+import yascaif.PValue;
+
+public class TestOverflowPolicy extends TestCase {
+	private CA ca;
+	private Monitor M;
+
+	@Override
+	protected void setUp() {
+		// no server is needed to queue updates
+		ca = new CA(new CA.Config().addrList("127.0.0.1").autoAddrList(false));
+		M = ca.monitor("test:notthere");
+		M.setCapacity(2);
+	}
+
+	@Override
+	protected void tearDown() {
+		M.close();
+		ca.close();
+	}
+
+	private void post(int first, int last) {
+		for(int t=first; t<=last; t++)
+			Internals.post(M, PValue.of("test", new double[]{t}, 0, new TimeStamp(t, 0)));
+	}
+
+	// take and release queued values
+	private void assertQueued(int... expect) throws InterruptedException {
+		for(int e : expect) {
+			PValue V = M.waitFor(0.0);
+			assertNotNull(V);
+			assertEquals((double)e, V.getDouble(0));
+			V.release();
+		}
+		assertNull(M.waitFor(0.0));
+	}
+
+	private void fill(OverflowPolicy p, int pooling) {
+		M.setOverflowPolicy(p);
+		M.setPooling(pooling);
+		post(1, 4);
+		assertEquals(2, M.getQueued());
+		assertEquals(2, M.getDropped());
+	}
+
+	public void testDropOldest() throws Exception {
+		fill(OverflowPolicy.DROP_OLDEST, 0);
+		assertEquals(4, M.getEnqueued());
+		assertQueued(3, 4);
+	}
+
+	public void testDropOldestPooled() throws Exception {
+		fill(OverflowPolicy.DROP_OLDEST, 8);
+		assertQueued(3, 4);
+	}
+
+	public void testDropNewest() throws Exception {
+		fill(OverflowPolicy.DROP_NEWEST, 0);
+		assertEquals(2, M.getEnqueued());
+		assertQueued(1, 2);
+	}
+
+	public void testDropNewestPooled() throws Exception {
+		fill(OverflowPolicy.DROP_NEWEST, 8);
+		assertQueued(1, 2);
+		assertEquals(2, M.getPoolAllocated()); // discarded updates aren't copied
+	}
+
+	public void testKeepLatest() throws Exception {
+		fill(OverflowPolicy.KEEP_LATEST, 0);
+		assertEquals(4, M.getEnqueued());
+		assertQueued(1, 4);
+	}
+
+	public void testKeepLatestPooled() throws Exception {
+		fill(OverflowPolicy.KEEP_LATEST, 8);
+		assertQueued(1, 4);
+	}
+
+	private void blockTimeout(int pooling) throws Exception {
+		M.setBlockTimeout(0.01);
+		fill(OverflowPolicy.BLOCK_PRODUCER, pooling);
+		// nothing consumes, so the oldest is discarded after the timeout
+		assertQueued(3, 4);
+	}
+
+	public void testBlockTimeout() throws Exception {
+		blockTimeout(0);
+	}
+
+	public void testBlockTimeoutPooled() throws Exception {
+		blockTimeout(8);
+	}
+
+	private void blockConsumer(int pooling) throws Exception {
+		final int N = 200;
+		M.setOverflowPolicy(OverflowPolicy.BLOCK_PRODUCER);
+		M.setBlockTimeout(5.0);
+		M.setPooling(pooling);
+		final double[] got = new double[N];
+		final Exception[] err = new Exception[1];
+		Thread T = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for(int i=0; i<N; i++) {
+						PValue V = M.waitFor(5.0);
+						got[i] = V.getDouble(0);
+						V.release();
+					}
+				} catch (Exception e) {
+					err[0] = e;
+				}
+			}
+		};
+		T.start();
+		post(1, N);
+		T.join(10000);
+		assertFalse(T.isAlive());
+		assertNull(err[0]);
+		assertEquals(0, M.getDropped());
+		for(int i=0; i<N; i++)
+			assertEquals((double)(i+1), got[i]);
+	}
+
+	public void testBlockConsumer() throws Exception {
+		blockConsumer(0);
+	}
+
+	public void testBlockConsumerPooled() throws Exception {
+		blockConsumer(8);
+	}
+}
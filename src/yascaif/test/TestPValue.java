@@ -0,0 +1,48 @@
+package yascaif.test;
+
+import gov.aps.jca.dbr.TimeStamp;
+import junit.framework.TestCase;
+import yascaif.DoublePValue;
+import yascaif.IntPValue;
+import yascaif.PValue;
+import yascaif.StringPValue;
+
+public class TestPValue extends TestCase {
+
+	public void testDouble() {
+		PValue V = PValue.of(this, new double[]{1.5, 2.5}, 0, new TimeStamp());
+		assertTrue(V instanceof DoublePValue);
+		assertEquals(2, V.length());
+		assertEquals(2.5, V.getDouble(1));
+		assertEquals("1.5", V.getString(0));
+		double[] D = V.getDoubles();
+		D[0] = 42.0; // a copy
+		assertEquals(1.5, V.getDouble(0));
+	}
+
+	public void testInt() {
+		PValue V = PValue.of(this, new int[]{1, 2, 3}, 0, new TimeStamp());
+		assertTrue(V instanceof IntPValue);
+		assertEquals(3, ((IntPValue)V).getIntValue(2));
+		assertEquals(3.0, V.getDouble(2));
+		assertTrue(V.toString().endsWith("[1, 2, 3]"));
+	}
+
+	public void testString() {
+		PValue V = PValue.of(this, new String[]{"hello", "4"}, 0, new TimeStamp());
+		assertTrue(V instanceof StringPValue);
+		assertEquals("hello", V.getString(0));
+		assertTrue(Double.isNaN(V.getDouble(0)));
+		assertEquals(4.0, V.getDouble(1));
+	}
+
+	public void testRange() {
+		PValue V = PValue.of(this, new double[]{1.0}, 0, new TimeStamp());
+		try {
+			V.getDouble(1);
+			fail("no exception");
+		} catch(IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+}
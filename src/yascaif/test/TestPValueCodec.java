@@ -0,0 +1,75 @@
+package yascaif.test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+import junit.framework.TestCase;
+import yascaif.DoublePValue;
+import yascaif.PValue;
+import yascaif.PValueCodec;
+import yascaif.ShortPValue;
+import yascaif.StringPValue;
+
+public class TestPValueCodec extends TestCase {
+
+	private PValue roundTrip(PValue V, ByteBuffer B)
+	{
+		int size = PValueCodec.encodedSize(V);
+		int start = B.position();
+		PValueCodec.encode(B, V);
+		assertEquals(size, B.position()-start);
+		B.flip();
+		B.position(start);
+		PValue R = PValueCodec.decode(B, this);
+		assertEquals(start+size, B.position());
+		assertEquals(V.getSevr(), R.getSevr());
+		assertEquals(V.getTime(), R.getTime());
+		assertSame(this, R.getSource());
+		return R;
+	}
+
+	public void testDouble() {
+		TimeStamp ts = new TimeStamp(123456789L, 987654321L);
+		PValue R = roundTrip(PValue.of(this, new double[]{1.5, -2.5, 3e300}, 2, ts), ByteBuffer.allocate(64));
+		assertTrue(R instanceof DoublePValue);
+		assertTrue(Arrays.equals(new double[]{1.5, -2.5, 3e300}, R.getDoubles()));
+	}
+
+	public void testScalar() {
+		PValue R = roundTrip(PValue.of(this, new double[]{42.0}, 0, new TimeStamp()), ByteBuffer.allocateDirect(64));
+		assertEquals(1, R.getCount());
+		assertEquals(42.0, R.getDouble(0));
+	}
+
+	public void testShortOrder() {
+		// buffer order is restored, and does not change the encoding
+		ByteBuffer B = ByteBuffer.allocate(64).order(ByteOrder.BIG_ENDIAN);
+		PValue R = roundTrip(PValue.of(this, new short[]{1, -2, 0x1234}, 1, new TimeStamp()), B);
+		assertEquals(ByteOrder.BIG_ENDIAN, B.order());
+		assertTrue(R instanceof ShortPValue);
+		assertTrue(Arrays.equals(new short[]{1, -2, 0x1234}, ((ShortPValue)R).getShortValues()));
+		assertEquals(0x34, B.get(PValueCodec.HEADER+4));
+	}
+
+	public void testString() {
+		PValue R = roundTrip(PValue.of(this, new String[]{"hello", "\u00b5A", ""}, 0, new TimeStamp()), ByteBuffer.allocate(64));
+		assertTrue(R instanceof StringPValue);
+		assertTrue(Arrays.equals(new String[]{"hello", "\u00b5A", ""}, ((StringPValue)R).getStrings()));
+	}
+
+	public void testTruncated() {
+		ByteBuffer B = ByteBuffer.allocate(64);
+		PValueCodec.encode(B, PValue.of(this, new int[]{1, 2, 3, 4}, 0, new TimeStamp()));
+		B.flip();
+		B.limit(B.limit()-1);
+		try {
+			PValueCodec.decode(B, this);
+			fail("no exception");
+		} catch(BufferUnderflowException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package yascaif.test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBR_TIME_Double;
+import gov.aps.jca.dbr.TimeStamp;
+import junit.framework.TestCase;
+import yascaif.CA;
+import yascaif.Internals;
+
+public class TestReadChunked extends TestCase {
+
+	private final List<LogRecord> logged = new ArrayList<>();
+	private final Handler capture = new Handler() {
+		@Override
+		public void publish(LogRecord record) { logged.add(record); }
+		@Override
+		public void flush() {}
+		@Override
+		public void close() {}
+	};
+	private final Logger L = Logger.getLogger(CA.class.getName());
+
+	@Override
+	protected void setUp() {
+		L.addHandler(capture);
+	}
+
+	@Override
+	protected void tearDown() {
+		L.removeHandler(capture);
+	}
+
+	private static DBR chunk(TimeStamp ts, double... val)
+	{
+		DBR_TIME_Double dbr = new DBR_TIME_Double(val);
+		dbr.setTimeStamp(ts);
+		return dbr;
+	}
+
+	public void testSameTime() {
+		// separate, but equal, time stamps
+		DBR[] parts = new DBR[]{
+				chunk(new TimeStamp(1000, 5), 1.0, 2.0),
+				chunk(new TimeStamp(1000, 5), 3.0, 4.0),
+				chunk(new TimeStamp(1000, 5), 5.0)};
+		ByteBuffer B = ByteBuffer.allocate(8*5);
+		assertEquals(5, Internals.putChunks("test:wf", parts, B, 5, 2, 8));
+		assertEquals(40, B.position());
+		assertEquals(4.0, B.getDouble(24));
+		assertEquals(0, logged.size());
+	}
+
+	public void testTorn() {
+		DBR[] parts = new DBR[]{
+				chunk(new TimeStamp(1000, 5), 1.0, 2.0),
+				chunk(new TimeStamp(1001, 5), 3.0, 4.0)};
+		ByteBuffer B = ByteBuffer.allocate(8*4);
+		assertEquals(4, Internals.putChunks("test:wf", parts, B, 4, 2, 8));
+		assertEquals(1, logged.size());
+	}
+
+	public void testShort() {
+		// array shorter than the element count
+		DBR[] parts = new DBR[]{
+				chunk(new TimeStamp(1000, 5), 1.0, 2.0),
+				chunk(new TimeStamp(1000, 5), 3.0),
+				chunk(new TimeStamp(1000, 5))};
+		ByteBuffer B = ByteBuffer.allocate(8*6);
+		assertEquals(3, Internals.putChunks("test:wf", parts, B, 6, 2, 8));
+		assertEquals(24, B.position());
+	}
+}
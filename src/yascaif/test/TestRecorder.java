@@ -0,0 +1,166 @@
+package yascaif.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import gov.aps.jca.dbr.TimeStamp;
+import junit.framework.TestCase;
+import yascaif.PValue;
+import yascaif.RecordReader;
+import yascaif.Recorder;
+
+public class TestRecorder extends TestCase {
+	private File dir;
+
+	@Override
+	protected void setUp() throws IOException {
+		dir = Files.createTempDirectory("yascaif").toFile();
+	}
+
+	@Override
+	protected void tearDown() {
+		File[] files = dir.listFiles();
+		if(files!=null) {
+			for(File f : files)
+				f.delete();
+		}
+		dir.delete();
+	}
+
+	private static void waitWritten(Recorder R, long n) throws InterruptedException {
+		for(int i=0; i<500 && R.getWritten()<n; i++)
+			Thread.sleep(10);
+		assertEquals(n, R.getWritten());
+	}
+
+	// 'n' updates of a 64 element waveform at t=1..n seconds
+	private static void recordWaveforms(Recorder R, int n) throws InterruptedException {
+		int id = R.addPV("wf");
+		for(int t=1; t<=n; t++) {
+			double[] wf = new double[64];
+			wf[0] = t;
+			assertTrue(R.record(id, PValue.of("test", wf, 0, new TimeStamp(t, 0))));
+			if(t%50==0)
+				waitWritten(R, t); // don't overflow the queue
+		}
+		waitWritten(R, n);
+	}
+
+	public void testRoundTrip() throws Exception {
+		PValue[] vals = new PValue[] {
+			PValue.of("test", new double[]{1.5, -2.5}, 1, new TimeStamp(100, 1)),
+			PValue.of("test", new int[]{7}, 2, new TimeStamp(100, 2)),
+			PValue.of("test", new String[]{"x", "\u00b5A"}, 0, new TimeStamp(100, 3)),
+			PValue.of("test", new float[]{0.25f, 4f, 8f}, 3, new TimeStamp(101, 999999999)),
+			PValue.of("test", new byte[]{1, -1}, 0, new TimeStamp(102, 0)),
+		};
+		Recorder R = new Recorder(dir, 4096, 16);
+		int a = R.addPV("pv:a"), b = R.addPV("pv:b");
+		for(int i=0; i<vals.length; i++)
+			assertTrue(R.record(i%2==0 ? a : b, vals[i]));
+		R.close();
+		assertEquals(vals.length, R.getWritten());
+		assertEquals(0, R.getDropped());
+		assertNull(R.getError());
+
+		try(RecordReader rd = new RecordReader(dir)) {
+			for(int i=0; i<vals.length; i++) {
+				RecordReader.Record E = rd.next();
+				assertNotNull(E);
+				assertEquals(i%2==0 ? a : b, E.getId());
+				assertEquals(i%2==0 ? "pv:a" : "pv:b", E.getName());
+				PValue V = vals[i], D = E.getValue();
+				assertSame(V.getClass(), D.getClass());
+				assertEquals(V.getSevr(), D.getSevr());
+				assertEquals(V.getTime(), D.getTime());
+				assertTrue(Arrays.equals(V.getTimeInt(), D.getTimeInt()));
+				assertEquals(V.toString(), D.toString()); // elements
+			}
+			assertNull(rd.next());
+		}
+	}
+
+	public void testRollover() throws Exception {
+		Recorder R = new Recorder(dir, 4096, 64);
+		recordWaveforms(R, 100);
+		R.close();
+		int nseg = R.getSegments();
+		assertTrue("segments "+nseg, nseg>10);
+
+		try(RecordReader rd = new RecordReader(dir)) {
+			assertEquals(nseg, rd.getSegmentCount());
+			for(int t=1; t<=100; t++) {
+				RecordReader.Record E = rd.next();
+				assertNotNull(E);
+				assertEquals("wf", E.getName());
+				assertEquals((double)t, E.getValue().getDouble(0));
+				assertEquals(64, E.getValue().getCount());
+			}
+			assertNull(rd.next());
+		}
+	}
+
+	public void testRangeSkips() throws Exception {
+		try(Recorder R = new Recorder(dir, 4096, 64)) {
+			recordWaveforms(R, 100);
+		}
+
+		// corrupt the first record, after the 64 byte header, of the first segment
+		File first = new File(dir, "segment-000001.dat");
+		try(RandomAccessFile raf = new RandomAccessFile(first, "rw")) {
+			raf.seek(64);
+			raf.writeInt(-1);
+		}
+
+		try(RecordReader rd = new RecordReader(dir)) {
+			rd.setRange(50.0, 60.0);
+			for(int t=50; t<=60; t++) {
+				RecordReader.Record E = rd.next();
+				assertNotNull(E);
+				assertEquals("wf", E.getName());
+				assertEquals((double)t, E.getValue().getDouble(0));
+			}
+			assertNull(rd.next());
+
+			// the first segment is read without a range
+			rd.rewind();
+			rd.setRange(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+			try {
+				rd.next();
+				fail("corrupt segment not read");
+			} catch(RuntimeException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt record"));
+			}
+		}
+	}
+
+	public void testOpenSegment() throws Exception {
+		try(Recorder R = new Recorder(dir, 1<<20, 16)) {
+			int id = R.addPV("pv");
+			for(int t=1; t<=3; t++)
+				R.record(id, PValue.of("test", new double[]{t}, 0, new TimeStamp(t, 0)));
+			waitWritten(R, 3);
+
+			try(RecordReader rd = new RecordReader(dir)) {
+				for(int t=1; t<=3; t++)
+					assertEquals((double)t, rd.next().getValue().getDouble(0));
+				assertNull(rd.next());
+
+				R.record(id, PValue.of("test", new double[]{4}, 0, new TimeStamp(4, 0)));
+				waitWritten(R, 4);
+				rd.rewind();
+				for(int t=1; t<=4; t++)
+					assertEquals((double)t, rd.next().getValue().getDouble(0));
+				assertNull(rd.next());
+			}
+			assertEquals(1, R.getSegments());
+			assertEquals(1<<20, new File(dir, "segment-000001.dat").length());
+		}
+		// truncated when finished
+		long len = new File(dir, "segment-000001.dat").length();
+		assertTrue("length "+len, len>64 && len<1024);
+	}
+}
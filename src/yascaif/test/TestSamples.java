@@ -0,0 +1,113 @@
+package yascaif.test;
+
+import gov.aps.jca.dbr.TimeStamp;
+import junit.framework.TestCase;
+import yascaif.CA;
+import yascaif.Internals;
+import yascaif.Monitor;
+import yascaif.PValue;
+import yascaif.Samples;
+
+public class TestSamples extends TestCase {
+
+	private static PValue sample(long sec, int sevr, Object val) {
+		return PValue.of("test", val, sevr, new TimeStamp(sec, 0));
+	}
+
+	private static Samples pack(PValue... vals) {
+		return Internals.pack(vals, vals.length);
+	}
+
+	public void testScalar() {
+		Samples S = pack(sample(1, 0, new double[]{1.5}), sample(2, 2, new int[]{3}), sample(3, 0, new short[]{-4}));
+		assertEquals(3, S.getCount());
+		assertEquals(1.5, S.getValues()[0], 0.0);
+		assertEquals(3.0, S.getValues()[1], 0.0);
+		assertEquals(-4.0, S.getValues()[2], 0.0);
+		assertEquals(PValue.of("test", new double[]{0}, 0, new TimeStamp(2, 0)).getTime(), S.getTimes()[1], 0.0);
+		assertEquals(2, S.getSevr()[1]);
+		assertNull(S.getArrays());
+		assertNull(S.getStrings());
+	}
+
+	public void testWaveform() {
+		Samples S = pack(sample(1, 0, new double[]{1, 2, 3}), sample(2, 0, new float[]{4, 5, 6}));
+		assertEquals(2, S.getCount());
+		assertEquals(1.0, S.getValues()[0], 0.0);
+		assertEquals(4.0, S.getValues()[1], 0.0);
+		double[][] A = S.getArrays();
+		assertEquals(2, A.length);
+		assertEquals(3, A[0].length);
+		assertEquals(3.0, A[0][2], 0.0);
+		assertEquals(6.0, A[1][2], 0.0);
+	}
+
+	public void testString() {
+		Samples S = pack(sample(1, 0, new String[]{"a"}), sample(2, 0, new String[]{"b"}));
+		assertEquals(2, S.getCount());
+		assertEquals("a", S.getStrings()[0]);
+		assertEquals("b", S.getStrings()[1]);
+		assertTrue(Double.isNaN(S.getValues()[0]));
+		assertNull(S.getArrays());
+	}
+
+	public void testMixed() {
+		Samples S = pack(sample(1, 0, new double[]{1}), sample(2, 0, new double[]{2, 3}),
+				sample(3, 0, new double[0]), sample(4, 0, new byte[]{7}));
+		assertEquals(4, S.getCount());
+		double[][] A = S.getArrays();
+		assertEquals(4, A.length);
+		assertEquals(1, A[0].length);
+		assertEquals(2, A[1].length);
+		assertEquals(0, A[2].length);
+		assertEquals(1, A[3].length);
+		assertEquals(7.0, A[3][0], 0.0);
+		assertTrue(Double.isNaN(S.getValues()[2]));
+		assertEquals(2.0, S.getValues()[1], 0.0);
+	}
+
+	public void testEmpty() {
+		Samples S = pack();
+		assertEquals(0, S.getCount());
+		assertEquals(0, S.getValues().length);
+		assertNull(S.getArrays());
+	}
+
+	// no server is needed to queue updates
+	private static void drainMonitor(int pooling) throws Exception {
+		try(CA ca = new CA(new CA.Config().addrList("127.0.0.1").autoAddrList(false));
+			Monitor M = ca.monitor("test:notthere"))
+		{
+			M.setCapacity(8);
+			M.setPooling(pooling);
+			assertEquals(0, M.drain(0).getCount());
+
+			for(int t=1; t<=5; t++)
+				Internals.post(M, sample(t, 0, new double[]{t, -t}));
+			Samples S = M.drain(2);
+			assertEquals(2, S.getCount());
+			assertEquals(1.0, S.getValues()[0], 0.0);
+			assertEquals(-2.0, S.getArrays()[1][1], 0.0);
+
+			S = M.drain(0);
+			assertEquals(3, S.getCount());
+			assertEquals(5.0, S.getArrays()[2][0], 0.0);
+			assertEquals(0, M.getQueued());
+
+			// pooled buffers are copied before release, so not changed by later updates
+			for(int t=6; t<=8; t++)
+				Internals.post(M, sample(t, 0, new double[]{t, -t}));
+			assertEquals(3, M.drain(0).getCount());
+			assertEquals(-5.0, S.getArrays()[2][1], 0.0);
+			assertEquals(0, M.getDropped());
+		}
+	}
+
+	public void testDrain() throws Exception {
+		drainMonitor(0);
+	}
+
+	public void testDrainPooled() throws Exception {
+		drainMonitor(16);
+	}
+}